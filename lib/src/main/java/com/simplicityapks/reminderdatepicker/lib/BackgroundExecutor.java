@@ -0,0 +1,36 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The single low priority background thread used to cache items and labels off the main thread.
+ */
+final class BackgroundExecutor {
+
+    private static ExecutorService executor;
+
+    private BackgroundExecutor() {
+        // no instances
+    }
+
+    /**
+     * Gets the shared executor, creating its thread when first needed.
+     */
+    static synchronized ExecutorService get() {
+        if(executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "ReminderDatePicker");
+                    // don't keep the process alive or compete with the main thread
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+}
@@ -9,9 +9,16 @@ import java.util.GregorianCalendar;
  */
 public class DateItem implements TwinTextItem{
 
+    // Flags telling which texts the DateSpinner has formatted from the date, see getFormattedTexts()
+    static final int FORMATTED_PRIMARY = 1;
+    static final int FORMATTED_SECONDARY = 2;
+
     private final String label, dateNumbers;
     private final int year, month, day, id;
+    // the date as day number, used for fast comparisons
+    private final int epochDay;
     private boolean enabled = true;
+    private int formattedTexts = 0;
 
     /**
      * Constructs a new DateItem holding the specified date and a label to show primarily.
@@ -38,6 +45,7 @@ public class DateItem implements TwinTextItem{
         this.day = day;
         this.id = id;
         this.dateNumbers = null;
+        this.epochDay = EpochDay.of(year, month, day);
     }
 
     /**
@@ -69,6 +77,7 @@ public class DateItem implements TwinTextItem{
         this.day = day;
         this.id = id;
         this.dateNumbers = dateString;
+        this.epochDay = EpochDay.of(year, month, day);
     }
 
     /**
@@ -103,6 +112,14 @@ public class DateItem implements TwinTextItem{
         return this.year;
     }
 
+    /**
+     * Gets the date set for this DateItem as day number, see {@link EpochDay}.
+     * @return The number of days since January 1, 1970.
+     */
+    public int getEpochDay() {
+        return this.epochDay;
+    }
+
     /**
      * Deeply compares this DateItem to the specified Object. Returns true if obj is a DateItem and
      * contains the same date (ignoring the label) or is a Calendar and contains the same date
@@ -114,10 +131,7 @@ public class DateItem implements TwinTextItem{
     public boolean equals(Object obj) {
         int objDay, objMonth, objYear;
         if(obj instanceof DateItem) {
-            DateItem item = (DateItem) obj;
-            objDay = item.getDay();
-            objMonth = item.getMonth();
-            objYear = item.getYear();
+            return ((DateItem) obj).getEpochDay() == this.epochDay;
         }
         else if(obj instanceof Calendar) {
             Calendar cal = (Calendar) obj;
@@ -144,6 +158,11 @@ public class DateItem implements TwinTextItem{
         return id;
     }
 
+    /**
+     * {@inheritDoc}
+     * Note that the adapter may disable the item in a spinner even if this returns true, see
+     * {@link PickerSpinnerAdapter#isEnabled(int)}.
+     */
     @Override
     public boolean isEnabled() {
         return enabled;
@@ -152,11 +171,51 @@ public class DateItem implements TwinTextItem{
     /**
      * Enable or disable this spinner item.
      * @param enable true to enable, false to disable this item.
+     * @deprecated The spinners may replace their items (like when the day or format changes), so use
+     * {@link PickerSpinnerAdapter#setItemEnabled(int, boolean)} to disable an item in a spinner instead.
      */
+    @Deprecated
     public void setEnabled(boolean enable) {
         this.enabled = enable;
     }
 
+    /**
+     * Marks which texts of this new item are its date formatted by the DateSpinner, so they are
+     * formatted again when the date format changes.
+     * @param formattedTexts A combination of the FORMATTED_ flags.
+     * @return This item.
+     */
+    DateItem setFormattedTexts(int formattedTexts) {
+        this.formattedTexts = formattedTexts;
+        return this;
+    }
+
+    /**
+     * Gets which texts of this item are its formatted date, see {@link #setFormattedTexts(int)}.
+     * @return A combination of the FORMATTED_ flags, 0 if the item doesn't depend on the formats.
+     */
+    int getFormattedTexts() {
+        return formattedTexts;
+    }
+
+    /**
+     * Creates a copy of this item with other texts, keeping the date, id, enabled state and which
+     * texts are formatted.
+     */
+    DateItem withTexts(String label, String dateString) {
+        final DateItem item = new DateItem(label, dateString, year, month, day, id);
+        item.enabled = enabled;
+        item.formattedTexts = formattedTexts;
+        return item;
+    }
+
+    /**
+     * Creates a copy of this item, which can be enabled and disabled independently.
+     */
+    DateItem copy() {
+        return withTexts(label, dateNumbers);
+    }
+
     /**
      * The returned String may be passed to {@link #fromString(String)} to save and recreate this object easily.
      * @return The elements of this object separated by \n
@@ -1,7 +1,6 @@
 package com.simplicityapks.reminderdatepicker.lib;
 
 import android.content.Context;
-import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
@@ -13,6 +12,7 @@ import android.support.v4.app.FragmentManager;
 import android.text.format.DateUtils;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.Toast;
@@ -20,7 +20,10 @@ import android.widget.Toast;
 import com.fourmob.datetimepicker.date.CalendarDay;
 import com.fourmob.datetimepicker.date.DatePickerDialog;
 
-import java.text.DateFormatSymbols;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -44,13 +47,12 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
     public static final String XML_ATTR_RELMONTH = "relMonth";
     public static final String XML_ATTR_RELYEAR = "relYear";
 
-
     // These listeners don't have to be implemented, if null just ignore
     private OnDateSelectedListener dateListener = null;
     private OnClickListener customDatePicker = null;
 
-    // The default DatePicker dialog to show if customDatePicker has not been set
-    private final DatePickerDialog datePickerDialog;
+    // The default DatePicker dialog to show if customDatePicker has not been set, created when first needed
+    private DatePickerDialog datePickerDialog = null;
     private FragmentManager fragmentManager;
 
     private boolean showPastItems = false;
@@ -58,14 +60,30 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
     private boolean showWeekdayNames = false;
     private boolean showNumbersInView = false;
 
-    private String[] weekDays = null;
-
     // To catch twice selecting the same date:
-    private Calendar lastSelectedDate = null;
+    private int lastSelectedEpochDay = EpochDay.NONE;
+
+    // The day the relative items (like "Today") have been created for, see onDayChanged()
+    private int itemsEpochDay = EpochDay.today();
+
+    // Maps the epoch day of each date item to its position, rebuilt when the adapter items have changed:
+    private final SparseIntArray datePositions = new SparseIntArray();
+    private int datePositionsVersion = -1;
+    private PickerSpinnerAdapter datePositionsAdapter = null;
 
     // Min and mix date to be shown (are currently not restored during rotation as they are mostly set in the onCreate() anyway):
     private Calendar minDate = null;
     private Calendar maxDate = null;
+    // The same dates as day numbers, to check the date range without querying the Calendars:
+    private int minEpochDay = EpochDay.NONE;
+    private int maxEpochDay = EpochDay.NONE;
+
+    // The range and items the enabled state has last been evaluated for, see updateEnabledItems()
+    private int enabledMinEpochDay = EpochDay.NONE;
+    private int enabledMaxEpochDay = EpochDay.NONE;
+    private int enabledItemsVersion = -1;
+    private PickerSpinnerAdapter enabledItemsAdapter = null;
+    private final BitSet disabledPositions = new BitSet();
 
     // The custom DateFormat used to convert Calendars into displayable Strings:
     private java.text.DateFormat customDateFormat = null;
@@ -103,20 +121,8 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
             setOnDateSelectedListener((OnDateSelectedListener) context);
         setOnItemSelectedListener(this);
 
-        final Calendar calendar = Calendar.getInstance();
-        // create the dialog:
-        datePickerDialog = DatePickerDialog.newInstance(
-                new DatePickerDialog.OnDateSetListener() {
-                    @Override
-                    public void onDateSet(DatePickerDialog datePickerDialog, int year, int month, int day) {
-                        setSelectedDate(new GregorianCalendar(year, month, day));
-                    }
-                },
-                calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
-                calendar.get(Calendar.DAY_OF_MONTH), hasVibratePermission(context));
-
         // the default min date is today:
-        setMinDate(calendar);
+        setMinDate(Calendar.getInstance());
 
         // get the FragmentManager:
         try{
@@ -126,18 +132,42 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
         }
 
         if(attrs != null) {
-            // get our flags from xml, if set:
+            // get our flags from xml, if set (inside a ReminderDatePicker they are set by the picker instead):
             TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.ReminderDatePicker);
-            int flags = a.getInt(R.styleable.ReminderDatePicker_flags, ReminderDatePicker.MODE_GOOGLE);
-            setFlags(flags);
+            if(a.hasValue(R.styleable.ReminderDatePicker_flags))
+                setFlags(a.getInt(R.styleable.ReminderDatePicker_flags, ReminderDatePicker.MODE_GOOGLE));
             a.recycle();
         }
     }
 
-    private boolean hasVibratePermission(Context context) {
-        final String permission = "android.permission.VIBRATE";
-        final int res = context.checkCallingOrSelfPermission(permission);
-        return (res == PackageManager.PERMISSION_GRANTED);
+    /**
+     * Gets the default date picker dialog, creating it if this has not been done yet.
+     */
+    private DatePickerDialog obtainDatePickerDialog() {
+        if(datePickerDialog == null) {
+            final Calendar calendar = Calendar.getInstance();
+            datePickerDialog = DatePickerDialog.newInstance(
+                    new DatePickerDialog.OnDateSetListener() {
+                        @Override
+                        public void onDateSet(DatePickerDialog datePickerDialog, int year, int month, int day) {
+                            setSelectedDate(year, month, day);
+                        }
+                    },
+                    calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
+                    calendar.get(Calendar.DAY_OF_MONTH), EnvironmentSnapshot.get(getContext()).hasVibratePermission());
+            updateDatePickerRange();
+        }
+        return datePickerDialog;
+    }
+
+    /**
+     * Applies our min and max date to the date picker dialog, if it has been created.
+     */
+    private void updateDatePickerRange() {
+        if(datePickerDialog == null)
+            return;
+        datePickerDialog.setMinDate(minDate == null? MINIMUM_POSSIBLE_DATE : new CalendarDay(minDate));
+        datePickerDialog.setMaxDate(maxDate == null? null : new CalendarDay(maxDate));
     }
 
     @Override
@@ -153,6 +183,37 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
 
     @Override
     protected @Nullable TwinTextItem parseItemFromXmlTag(@NonNull XmlResourceParser parser) {
+        return parseDateItem(getContext(), parser, customDateFormat);
+    }
+
+    /**
+     * Creates and caches the items of DateSpinners with the default date format and the given flags,
+     * see {@link ReminderDatePicker#warmUpCaches(Context, int)}. May be called from any thread.
+     */
+    static void warmUpCaches(final Context context, int modeOrFlags) throws XmlPullParserException, IOException {
+        obtainItemsFromXml(context.getResources(), R.xml.date_items, null, new XmlItemParser() {
+            @Override
+            public TwinTextItem parseItemFromXmlTag(@NonNull XmlResourceParser parser) {
+                return parseDateItem(context, parser, null);
+            }
+        });
+        // the texts of the items added by the flags are cached as well
+        if((modeOrFlags & ReminderDatePicker.FLAG_MONTH) != 0) {
+            final Calendar date = Calendar.getInstance();
+            date.add(Calendar.MONTH, 1);
+            formatDate(context, null, date);
+        }
+        EnvironmentSnapshot.getWeekDayNames();
+    }
+
+    /**
+     * Parses a DateItem from the current xml tag. Unlike {@link #parseItemFromXmlTag(XmlResourceParser)},
+     * this doesn't need a spinner, so it may be called from any thread.
+     * @param customDateFormat The date format for items without text, or null to use the default format.
+     *                         It may only be used by the calling thread.
+     */
+    static @Nullable DateItem parseDateItem(Context context, @NonNull XmlResourceParser parser,
+                                           @Nullable java.text.DateFormat customDateFormat) {
         if(!parser.getName().equals(XML_TAG_DATEITEM)) {
             Log.d("DateSpinner", "Unknown xml tag name: " + parser.getName());
             return null;
@@ -218,17 +279,33 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
 
         // check if we got a textResource earlier and parse that string together with the weekday
         if(textResource != NO_ID)
-            text = getWeekDay(date.get(Calendar.DAY_OF_WEEK), textResource);
+            text = getWeekDay(context.getResources(), date.get(Calendar.DAY_OF_WEEK), textResource);
 
         // when no text is given, format the date to have at least something to show
         if(text == null || text.equals(""))
-            text = formatDate(date);
+            return new DateItem(formatDate(context, customDateFormat, date), date, id)
+                    .setFormattedTexts(DateItem.FORMATTED_PRIMARY);
 
         return new DateItem(text, date, id);
     }
 
+    @Override
+    protected @Nullable Object getItemsFromXmlVariant() {
+        // items without text are formatted using our custom date format
+        return customDateFormat;
+    }
+
+
+    private static String toStringOrNull(CharSequence text) {
+        return text == null? null : text.toString();
+    }
+
     private String getWeekDay(int weekDay, @StringRes int stringRes) {
-        if(weekDays == null) weekDays = new DateFormatSymbols().getWeekdays();
+        return getWeekDay(getResources(), weekDay, stringRes);
+    }
+
+    private static String getWeekDay(Resources res, int weekDay, @StringRes int stringRes) {
+        final String[] weekDays = EnvironmentSnapshot.getWeekDayNames();
         // use a separate string for Saturday and Sunday because of gender variation in Portuguese
         if(weekDay==7 || weekDay==1) {
             if(stringRes == R.string.date_next_weekday)
@@ -236,7 +313,7 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
             else if(stringRes == R.string.date_last_weekday)
                 stringRes = R.string.date_last_weekday_weekend;
         }
-        String result = getResources().getString(stringRes, weekDays[weekDay]);
+        String result = res.getString(stringRes, weekDays[weekDay]);
         // in some translations (French for instance), the weekday is the first word but is not capitalized, so we'll do that
         return Character.toUpperCase(result.charAt(0)) + result.substring(1);
     }
@@ -252,23 +329,107 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
         return ((DateItem) selectedItem).getDate();
     }
 
+    /**
+     * Gets the currently selected date (that the Spinner is showing) without creating a Calendar.
+     * @return The selected date as day number (see {@link EpochDay}), or {@link EpochDay#NONE} if there is none.
+     */
+    public int getSelectedEpochDay() {
+        final Object selectedItem = getSelectedItem();
+        if(!(selectedItem instanceof DateItem))
+            return EpochDay.NONE;
+        return ((DateItem) selectedItem).getEpochDay();
+    }
+
     /**
      * Sets the Spinner's selection as date. If the date was not in the possible selections, a temporary
      * item is created and passed to selectTemporary().
      * @param date The date to be selected.
      */
     public void setSelectedDate(@NonNull Calendar date) {
-        final int count = getAdapter().getCount() - 1;
-        int itemPosition = -1;
-        for(int i=0; i<count; i++) {
-            if(getAdapter().getItem(i).equals(date)) { // because DateItem deeply compares to calendar
-                itemPosition = i;
-                break;
-            }
-        }
+        final int itemPosition = getDatePosition(EpochDay.of(date));
+        if(itemPosition >= 0)
+            setSelection(itemPosition);
+        else
+            selectTemporaryDate(date);
+    }
+
+    /**
+     * Sets the Spinner's selection as date. If the date was not in the possible selections, a temporary
+     * item is created and passed to selectTemporary().
+     * @param year The year.
+     * @param month The month of year, zero-indexed (so 11 is December).
+     * @param day The day of the month.
+     */
+    public void setSelectedDate(int year, int month, int day) {
+        final int itemPosition = getDatePosition(EpochDay.of(year, month, day));
         if(itemPosition >= 0)
             setSelection(itemPosition);
-        else if(showWeekdayNames) {
+        else
+            selectTemporaryDate(new GregorianCalendar(year, month, day));
+    }
+
+    /**
+     * Finds the position of the spinner item holding the given date (excluding any temporary selection).
+     * @param year The year.
+     * @param month The month of year, zero-indexed (so 11 is December).
+     * @param day The day of the month.
+     * @return The position of the first DateItem with this date, or -1 if there is no such item.
+     */
+    public int getDateItemPosition(int year, int month, int day) {
+        return getDatePosition(EpochDay.of(year, month, day));
+    }
+
+    /**
+     * Looks up the given epoch day in our index, which is rebuilt first if the adapter items have changed.
+     */
+    int getDatePosition(int epochDay) {
+        return obtainDatePositions().get(epochDay, -1);
+    }
+
+    /**
+     * Finds the item with the earliest date equal to or later than the given one, using a binary
+     * search over the sorted keys of our index.
+     * @param epochDay The epoch day to search.
+     * @return The position of the (first) item with that date, or -1 if all items are earlier.
+     */
+    int getNextDatePosition(int epochDay) {
+        final SparseIntArray positions = obtainDatePositions();
+        int low = 0;
+        int high = positions.size();
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(positions.keyAt(mid) < epochDay)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low < positions.size()? positions.valueAt(low) : -1;
+    }
+
+    private SparseIntArray obtainDatePositions() {
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        final int version = adapter.getModificationCount();
+        if(version != datePositionsVersion || adapter != datePositionsAdapter) {
+            datePositions.clear();
+            // the items are usually sorted, so most keys can be appended without moving the others
+            final int last = getLastItemPosition();
+            for(int position = 0; position <= last; position++) {
+                final int epochDay = ((DateItem) adapter.getItem(position)).getEpochDay();
+                final int size = datePositions.size();
+                if(size == 0 || datePositions.keyAt(size - 1) < epochDay)
+                    datePositions.append(epochDay, position);
+                // the first item wins if there are multiple items with the same date
+                else if(datePositions.indexOfKey(epochDay) < 0)
+                    datePositions.put(epochDay, position);
+            }
+            datePositionsVersion = version;
+            datePositionsAdapter = adapter;
+        }
+        return datePositions;
+    }
+
+    private void selectTemporaryDate(@NonNull Calendar date) {
+        if(showWeekdayNames) {
             final long MILLIS_IN_DAY = 1000*60*60*24;
             final long dateDifference = (date.getTimeInMillis()/MILLIS_IN_DAY)
                     - (Calendar.getInstance().getTimeInMillis()/MILLIS_IN_DAY);
@@ -279,32 +440,54 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
                 // Because these items are always temporarily selected, we can safely assume that
                 // they will never appear in the spinner dropdown. When a FLAG_NUMBERS is set, we
                 // want these items to have the date as secondary text in a short format.
-                selectTemporary(new DateItem(getWeekDay(day, R.string.date_only_weekday), formatSecondaryDate(date), date, NO_ID));
+                selectTemporary(new DateItem(getWeekDay(day, R.string.date_only_weekday), formatSecondaryDate(date), date, NO_ID)
+                        .setFormattedTexts(DateItem.FORMATTED_SECONDARY));
             } else {
                 // show the date as a full text, using the current DateFormat:
-                selectTemporary(new DateItem(formatDate(date), date, NO_ID));
+                selectTemporary(createFormattedItem(date));
             }
         }
         else {
             // show the date as a full text, using the current DateFormat:
-            selectTemporary(new DateItem(formatDate(date), date, NO_ID));
+            selectTemporary(createFormattedItem(date));
         }
     }
 
+    private DateItem createFormattedItem(@NonNull Calendar date) {
+        return new DateItem(formatDate(date), date, NO_ID).setFormattedTexts(DateItem.FORMATTED_PRIMARY);
+    }
+
     private String formatDate(@NonNull Calendar date) {
-        if(customDateFormat == null)
-            return DateUtils.formatDateTime(getContext(), date.getTimeInMillis(), DateUtils.FORMAT_SHOW_DATE);
-        else
-            return customDateFormat.format(date.getTime());
+        return formatDate(getContext(), customDateFormat, date);
+    }
+
+    private static String formatDate(Context context, @Nullable java.text.DateFormat customDateFormat,
+                                     @NonNull Calendar date) {
+        final int epochDay = EpochDay.of(date);
+        String label = LabelCache.get(LabelCache.KIND_DATE, customDateFormat, epochDay);
+        if(label == null) {
+            if(customDateFormat == null)
+                label = DateUtils.formatDateTime(context, date.getTimeInMillis(), DateUtils.FORMAT_SHOW_DATE);
+            else
+                label = customDateFormat.format(date.getTime());
+            LabelCache.put(LabelCache.KIND_DATE, customDateFormat, epochDay, label);
+        }
+        return label;
     }
 
     // only to be used when FLAG_NUMBERS and FLAG_WEEKDAY_NAMES have been set
     private String formatSecondaryDate(@NonNull Calendar date) {
-        if(secondaryDateFormat == null)
-            return DateUtils.formatDateTime(getContext(), date.getTimeInMillis(),
-                    DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_NUMERIC_DATE);
-        else
-            return secondaryDateFormat.format(date.getTime());
+        final int epochDay = EpochDay.of(date);
+        String label = LabelCache.get(LabelCache.KIND_SECONDARY_DATE, secondaryDateFormat, epochDay);
+        if(label == null) {
+            if(secondaryDateFormat == null)
+                label = DateUtils.formatDateTime(getContext(), date.getTimeInMillis(),
+                        DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_NUMERIC_DATE);
+            else
+                label = secondaryDateFormat.format(date.getTime());
+            LabelCache.put(LabelCache.KIND_SECONDARY_DATE, secondaryDateFormat, epochDay, label);
+        }
+        return label;
     }
 
     /**
@@ -333,23 +516,39 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
     public void setDateFormat(java.text.DateFormat dateFormat, java.text.DateFormat numbersDateFormat) {
         this.customDateFormat = dateFormat;
         this.secondaryDateFormat = numbersDateFormat;
-        // update the spinner with the new date format:
-
-        // the only spinner item that will be affected is the month item, so just toggle the flag twice
-        // instead of rebuilding the whole adapter
-        if(showMonthItem) {
-            int monthPosition = getAdapterItemPosition(4);
-            boolean reselectMonthItem = getSelectedItemPosition() == monthPosition;
-            setShowMonthItem(false);
-            setShowMonthItem(true);
-            if(reselectMonthItem) setSelection(monthPosition);
+
+        // update only the formatted texts in place, so the adapter and selection can stay as they are
+        // (usually this is just the month item):
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        final int last = getLastItemPosition();
+        final TwinTextItem temporary = adapter.getTemporarySelection();
+        beginUpdate();
+        for(int position = 0; position <= last; position++) {
+            final TwinTextItem item = adapter.getItem(position);
+            if(isFormatted(item))
+                replaceAdapterItemAt(position, relabel((DateItem) item));
         }
+        if(isFormatted(temporary))
+            replaceTemporarySelection(relabel((DateItem) temporary));
+        endUpdate();
+    }
 
-        // if we have a temporary date item selected, update that as well
-        if(getSelectedItemPosition() == getAdapter().getCount())
-            setSelectedDate(getSelectedDate());
+    private static boolean isFormatted(@Nullable TwinTextItem item) {
+        return item instanceof DateItem && ((DateItem) item).getFormattedTexts() != 0;
     }
 
+    /**
+     * Creates a copy of the given item with its formatted texts formatted in the current formats.
+     */
+    private DateItem relabel(DateItem item) {
+        final Calendar date = item.getDate();
+        final int formattedTexts = item.getFormattedTexts();
+        final String primary = (formattedTexts & DateItem.FORMATTED_PRIMARY) != 0?
+                formatDate(date) : toStringOrNull(item.getPrimaryText());
+        final String secondary = (formattedTexts & DateItem.FORMATTED_SECONDARY) != 0?
+                formatSecondaryDate(date) : toStringOrNull(item.getSecondaryText());
+        return item.withTexts(primary, secondary);
+    }
 
     /**
      * Sets the minimum allowed date.
@@ -358,13 +557,11 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
      */
     public void setMinDate(@Nullable Calendar minDate) {
         this.minDate = minDate;
-        // update the date picker (even if it is not used right now)
-        if(minDate == null)
-            datePickerDialog.setMinDate(MINIMUM_POSSIBLE_DATE);
-        else if(maxDate != null && compareCalendarDates(minDate, maxDate) > 0)
+        this.minEpochDay = minDate == null? EpochDay.NONE : EpochDay.of(minDate);
+        if(minEpochDay != EpochDay.NONE && maxEpochDay != EpochDay.NONE && minEpochDay > maxEpochDay)
             throw new IllegalArgumentException("Minimum date must be before maximum date!");
-        else
-            datePickerDialog.setMinDate(new CalendarDay(minDate));
+        // the date picker gets the new range when it is created, unless it already exists
+        updateDatePickerRange();
         updateEnabledItems();
     }
 
@@ -383,13 +580,11 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
      */
     public void setMaxDate(@Nullable Calendar maxDate) {
         this.maxDate = maxDate;
-        // update the date picker (even if it is not used right now)
-        if(maxDate == null)
-            datePickerDialog.setMaxDate(null);
-        else if(minDate != null && compareCalendarDates(minDate, maxDate) > 0)
+        this.maxEpochDay = maxDate == null? EpochDay.NONE : EpochDay.of(maxDate);
+        if(maxEpochDay != EpochDay.NONE && minEpochDay != EpochDay.NONE && minEpochDay > maxEpochDay)
             throw new IllegalArgumentException("Maximum date must be after minimum date!");
-        else
-            datePickerDialog.setMaxDate(new CalendarDay(maxDate));
+        // the date picker gets the new range when it is created, unless it already exists
+        updateDatePickerRange();
         updateEnabledItems();
     }
 
@@ -403,55 +598,43 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
 
 
     /**
-     * Loops through the Spinner items and disables all that are not within the min/max date range.
+     * Disables all Spinner items that are not within the min/max date range. The range is only
+     * evaluated again if it or the items have changed since the last call.
      */
     private void updateEnabledItems() {
         PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
         // if the current item is out of range, we have no choice but to reset it
-        if(!isInDateRange(getSelectedDate())) {
-            final Calendar today = Calendar.getInstance();
-            if(isInDateRange(today))
-                setSelectedDate(today);
+        final int selectedDay = getSelectedEpochDay();
+        if(selectedDay != EpochDay.NONE && !isInDateRange(selectedDay)) {
+            if(isInDateRange(EpochDay.today()))
+                setSelectedDate(Calendar.getInstance());
             else
                 // if today itself is not a valid date, we will just use the minimum date (which is always set here)
                 setSelectedDate(minDate);
         }
 
+        // moving the minimum date within the same day (like every minute to disallow past dates) changes nothing
+        final int version = adapter.getModificationCount();
+        if(minEpochDay == enabledMinEpochDay && maxEpochDay == enabledMaxEpochDay
+                && version == enabledItemsVersion && adapter == enabledItemsAdapter)
+            return;
+
+        // the items may be shared with other spinners, so the enabled state is kept by our adapter
+        disabledPositions.clear();
         for(int position = getLastItemPosition(); position >= 0; position--) {
-            DateItem item = (DateItem) adapter.getItem(position);
-            if(isInDateRange(item.getDate()))
-                item.setEnabled(true);
-            else
-                item.setEnabled(false);
+            if(!isInDateRange(((DateItem) adapter.getItem(position)).getEpochDay()))
+                disabledPositions.set(position);
         }
+        adapter.setDisabledPositions(disabledPositions);
+        enabledMinEpochDay = minEpochDay;
+        enabledMaxEpochDay = maxEpochDay;
+        enabledItemsVersion = adapter.getModificationCount();
+        enabledItemsAdapter = adapter;
     }
 
-    private boolean isInDateRange(@NonNull Calendar date) {
-        return (minDate == null || compareCalendarDates(minDate, date) <= 0) // later than minDate
-                && (maxDate == null || compareCalendarDates(maxDate, date) >= 0); // before maxDate
-    }
-
-    /**
-     * Compares the two given Calendar objects, only counting the date, not time.
-     * @return -1 if first comes before second, 0 if both are the same day, 1 if second is before first.
-     */
-    static int compareCalendarDates(@NonNull Calendar first, @NonNull Calendar second) {
-        final int firstYear = first.get(Calendar.YEAR);
-        final int secondYear = second.get(Calendar.YEAR);
-        final int firstDay = first.get(Calendar.DAY_OF_YEAR);
-        final int secondDay = second.get(Calendar.DAY_OF_YEAR);
-        if(firstYear == secondYear) {
-            if(firstDay == secondDay)
-                return 0;
-            else if(firstDay < secondDay)
-                return -1;
-            else
-                return 1;
-        }
-        else if(firstYear < secondYear)
-            return -1;
-        else
-            return 1;
+    private boolean isInDateRange(int epochDay) {
+        return (minEpochDay == EpochDay.NONE || minEpochDay <= epochDay) // later than minDate
+                && (maxEpochDay == EpochDay.NONE || maxEpochDay >= epochDay); // before maxDate
     }
 
     /**
@@ -468,7 +651,7 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
     public @Nullable DatePickerDialog getDatePickerDialog() {
         if(customDatePicker != null)
             return null;
-        return datePickerDialog;
+        return obtainDatePickerDialog();
     }
 
     /**
@@ -488,20 +671,12 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
     public void setShowPastItems(boolean enable) {
         if(enable && !showPastItems) {
             // first reset the minimum date if necessary:
-            if(getMinDate() != null && compareCalendarDates(getMinDate(), Calendar.getInstance()) == 0)
+            if(minEpochDay == EpochDay.today())
                 setMinDate(null);
 
             // create the yesterday and last Monday item:
-            final Resources res = getResources();
-            final Calendar date = Calendar.getInstance();
-            // yesterday:
-            date.add(Calendar.DAY_OF_YEAR, -1);
-            insertAdapterItem(new DateItem(res.getString(R.string.date_yesterday), date, R.id.date_yesterday), 0);
-            // last weekday item:
-            date.add(Calendar.DAY_OF_YEAR, -6);
-            int weekday = date.get(Calendar.DAY_OF_WEEK);
-            insertAdapterItem(new DateItem(getWeekDay(weekday, R.string.date_last_weekday),
-                    date, R.id.date_last_week), 0);
+            insertAdapterItem(createRelativeItem(R.id.date_yesterday), 0);
+            insertAdapterItem(createRelativeItem(R.id.date_last_week), 0);
         }
         else if(!enable && showPastItems) {
             // delete the yesterday and last weekday items:
@@ -514,6 +689,100 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
         showPastItems = enable;
     }
 
+    /**
+     * Creates one of the items added by the flags, relative to today.
+     * @param id The id of the item, one of R.id.date_yesterday, R.id.date_last_week or R.id.date_month.
+     * @return The new item, or null if no such item belongs to the id.
+     */
+    private @Nullable DateItem createRelativeItem(int id) {
+        final Calendar date = Calendar.getInstance();
+        if(id == R.id.date_yesterday) {
+            date.add(Calendar.DAY_OF_YEAR, -1);
+            return new DateItem(getResources().getString(R.string.date_yesterday), date, id);
+        }
+        else if(id == R.id.date_last_week) {
+            date.add(Calendar.DAY_OF_YEAR, -7);
+            return new DateItem(getWeekDay(date.get(Calendar.DAY_OF_WEEK), R.string.date_last_weekday), date, id);
+        }
+        else if(id == R.id.date_month) {
+            date.add(Calendar.MONTH, 1);
+            return new DateItem(formatDate(date), date, id).setFormattedTexts(DateItem.FORMATTED_PRIMARY);
+        }
+        return null;
+    }
+
+    /**
+     * Called by the {@link DayChangeScheduler} when the day may have changed. Replaces all items
+     * relative to today (like "Tomorrow") in place with ones for the new day, keeping the selected date
+     * without calling the listener. If the selected date is not allowed anymore because the default
+     * minimum date moves along with today (like the "Today" of yesterday), today is selected instead,
+     * which is reported once.
+     */
+    void onDayChanged() {
+        final int today = EpochDay.today();
+        if(today == itemsEpochDay)
+            return;
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        final int selectedDay = getSelectedEpochDay();
+        // a selection made just before still needs to be reported
+        final boolean callbackPending = isSelectionCallbackPending();
+        // the xml items are cached per day, so this gets the ones for the new day
+        final List<TwinTextItem> xmlItems = getSpinnerItems();
+
+        beginUpdate();
+        for(int position = getLastItemPosition(); position >= 0; position--) {
+            final TwinTextItem item = adapter.getItem(position);
+            TwinTextItem replacement = createRelativeItem(item.getId());
+            if(replacement == null && xmlItems != null && item.getId() != NO_ID) {
+                for(TwinTextItem xmlItem : xmlItems) {
+                    if(xmlItem.getId() == item.getId()) {
+                        replacement = xmlItem;
+                        break;
+                    }
+                }
+            }
+            // items with an absolute date don't change
+            if(replacement != null && !replacement.equals(item))
+                replaceAdapterItemAt(position, replacement);
+        }
+        // select the same date again, which may now be another item or need another weekday label
+        if(selectedDay != EpochDay.NONE)
+            setSelectedDate(EpochDay.getYear(selectedDay), EpochDay.getMonth(selectedDay),
+                    EpochDay.getDayOfMonth(selectedDay));
+        endUpdate();
+
+        // the minimum date defaults to today, so move it along if it has not been changed
+        final int previousDay = itemsEpochDay;
+        itemsEpochDay = today;
+        if(minEpochDay == previousDay)
+            setMinDate(Calendar.getInstance());
+        else
+            updateEnabledItems();
+        // the items have been replaced, but the date has not been changed by anyone
+        if(!callbackPending && selectedDay != EpochDay.NONE && getSelectedEpochDay() == selectedDay)
+            cancelSelectionCallback();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        DayChangeScheduler.register(this);
+        // we won't have been notified while detached
+        onDayChanged();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        DayChangeScheduler.unregister(this);
+        super.onDetachedFromWindow();
+    }
+
     /**
      * Toggles showing the month item. Month mode an item in exactly one month from now.
      * @param enable True to enable, false to disable month mode.
@@ -521,9 +790,7 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
     public void setShowMonthItem(boolean enable) {
         if(enable && !showMonthItem) {
             // create the in 1 month item
-            final Calendar date = Calendar.getInstance();
-            date.add(Calendar.MONTH, 1);
-            addAdapterItem(new DateItem(formatDate(date), date, R.id.date_month));
+            addAdapterItem(createRelativeItem(R.id.date_month));
         }
         else if(!enable && showMonthItem) {
             removeAdapterItemById(R.id.date_month);
@@ -560,11 +827,8 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
     }
 
     private void setShowNumbersInViewInt(boolean enable) {
-        PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
-        // workaround for now. See GitHub issue #2
-        if (enable != adapter.isShowingSecondaryTextInView() && adapter.getCount() == getSelectedItemPosition())
-            setSelection(0);
-        adapter.setShowSecondaryTextInView(enable);
+        // a temporary selection is kept, PickerSpinner reselects it after the data set change
+        ((PickerSpinnerAdapter) getAdapter()).setShowSecondaryTextInView(enable);
     }
 
     /**
@@ -573,22 +837,23 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
      *                    combined with the | operator.
      */
     public void setFlags(int modeOrFlags) {
+        // apply all item changes at once:
+        beginUpdate();
         setShowPastItems((modeOrFlags & ReminderDatePicker.FLAG_PAST) != 0);
         setShowMonthItem((modeOrFlags & ReminderDatePicker.FLAG_MONTH) != 0);
         setShowWeekdayNames((modeOrFlags & ReminderDatePicker.FLAG_WEEKDAY_NAMES) != 0);
         setShowNumbersInView((modeOrFlags & ReminderDatePicker.FLAG_NUMBERS) != 0);
+        endUpdate();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void removeAdapterItemAt(int index) {
-        if(index == getSelectedItemPosition()) {
-            Calendar date = getSelectedDate();
-            selectTemporary(new DateItem(formatDate(date), date, NO_ID));
-        }
-        super.removeAdapterItemAt(index);
+    protected @Nullable TwinTextItem createTemporaryReplacement(TwinTextItem removedItem) {
+        if(!(removedItem instanceof DateItem))
+            return null;
+        return createFormattedItem(((DateItem) removedItem).getDate());
     }
 
     @Override
@@ -600,10 +865,10 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
     public void onFooterClick() {
         if (customDatePicker == null) {
             // update the selected date in the dialog
-            final Calendar date = getSelectedDate();
-            datePickerDialog.onDateSelected(
-                    date.get(Calendar.YEAR), date.get(Calendar.MONTH), date.get(Calendar.DAY_OF_MONTH));
-            datePickerDialog.show(fragmentManager, "DatePickerDialog");
+            final DatePickerDialog dialog = obtainDatePickerDialog();
+            final DateItem date = (DateItem) getSelectedItem();
+            dialog.onDateSelected(date.getYear(), date.getMonth(), date.getDay());
+            dialog.show(fragmentManager, "DatePickerDialog");
         } else {
             customDatePicker.onClick(this);
         }
@@ -614,14 +879,26 @@ public class DateSpinner extends PickerSpinner implements AdapterView.OnItemSele
         selectTemporary(DateItem.fromString(codeString));
     }
 
+    @Override
+    protected int getTemporarySelectionValue(TwinTextItem item) {
+        return item instanceof DateItem? ((DateItem) item).getEpochDay() : NO_TEMPORARY_VALUE;
+    }
+
+    @Override
+    protected void restoreTemporarySelection(int epochDay) {
+        // the texts depend on the format and today's date, so create them again
+        selectTemporaryDate(new GregorianCalendar(EpochDay.getYear(epochDay), EpochDay.getMonth(epochDay),
+                EpochDay.getDayOfMonth(epochDay)));
+    }
+
     @Override
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         if(dateListener != null) {
-            // catch selecting same date twice
-            Calendar date = getSelectedDate();
-            if(date != null && !date.equals(lastSelectedDate)) {
-                dateListener.onDateSelected(date);
-                lastSelectedDate = date;
+            // catch selecting same date twice, only create a Calendar for the listener if it has changed
+            final int epochDay = getSelectedEpochDay();
+            if(epochDay != EpochDay.NONE && epochDay != lastSelectedEpochDay) {
+                lastSelectedEpochDay = epochDay;
+                dateListener.onDateSelected(getSelectedDate());
             }
         }
     }
@@ -0,0 +1,117 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.TimeZone;
+
+/**
+ * Notifies all attached DateSpinners when the day changes, so their relative items (like "Today")
+ * can be updated in place. There is only one Handler and one BroadcastReceiver per process, which
+ * only exist while at least one spinner is registered. Spinners are only weakly referenced, but
+ * should still unregister themselves when detached from their window.
+ * All methods need to be called on the main thread.
+ */
+final class DayChangeScheduler {
+
+    // wait a little longer than until midnight, so the clock has definitely passed it when we run
+    private static final long MIDNIGHT_DELAY = 1000;
+
+    private static final ArrayList<WeakReference<DateSpinner>> spinners = new ArrayList<>();
+
+    private static Handler handler;
+    private static Context appContext;
+    private static BroadcastReceiver receiver;
+
+    private static final Runnable dayChange = new Runnable() {
+        @Override
+        public void run() {
+            dispatchDayChange();
+        }
+    };
+
+    private DayChangeScheduler() {
+        // no instances
+    }
+
+    /**
+     * Starts notifying the given spinner on day changes, does nothing if it is already registered.
+     */
+    static void register(DateSpinner spinner) {
+        for(int i = spinners.size() - 1; i >= 0; i--) {
+            final DateSpinner registered = spinners.get(i).get();
+            if(registered == spinner)
+                return;
+            if(registered == null)
+                spinners.remove(i);
+        }
+        spinners.add(new WeakReference<>(spinner));
+        if(handler == null)
+            start(spinner.getContext());
+    }
+
+    /**
+     * Stops notifying the given spinner, and stops listening for day changes if it was the last one.
+     */
+    static void unregister(DateSpinner spinner) {
+        for(int i = spinners.size() - 1; i >= 0; i--) {
+            final DateSpinner registered = spinners.get(i).get();
+            if(registered == spinner || registered == null)
+                spinners.remove(i);
+        }
+        if(spinners.isEmpty() && handler != null)
+            stop();
+    }
+
+    private static void start(Context context) {
+        handler = new Handler(Looper.getMainLooper());
+        // the receiver must not keep the activity alive
+        appContext = context.getApplicationContext();
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                // the day may have changed while the device was asleep or the clock has been set
+                dispatchDayChange();
+            }
+        };
+        final IntentFilter filter = new IntentFilter(Intent.ACTION_DATE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        appContext.registerReceiver(receiver, filter);
+        scheduleNextDayChange();
+    }
+
+    private static void stop() {
+        handler.removeCallbacks(dayChange);
+        appContext.unregisterReceiver(receiver);
+        handler = null;
+        appContext = null;
+        receiver = null;
+    }
+
+    private static void scheduleNextDayChange() {
+        handler.removeCallbacks(dayChange);
+        final long now = System.currentTimeMillis();
+        final TimeZone zone = TimeZone.getDefault();
+        final long midnight = EpochDay.toMillis(EpochDay.ofMillis(now, zone) + 1, 0, zone);
+        handler.postDelayed(dayChange, midnight - now + MIDNIGHT_DELAY);
+    }
+
+    private static void dispatchDayChange() {
+        // spinners may unregister themselves in the callback, so notify a copy
+        final ArrayList<WeakReference<DateSpinner>> registered = new ArrayList<>(spinners);
+        for(WeakReference<DateSpinner> reference : registered) {
+            final DateSpinner spinner = reference.get();
+            if(spinner != null)
+                spinner.onDayChanged();
+        }
+        if(handler != null)
+            scheduleNextDayChange();
+    }
+}
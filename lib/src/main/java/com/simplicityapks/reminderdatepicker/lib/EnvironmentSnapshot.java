@@ -0,0 +1,112 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+
+import java.text.DateFormatSymbols;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The parts of the environment our views look up again and again (theme darkness, the VIBRATE
+ * permission and the locale's weekday names), read once per theme and shared by all pickers using
+ * it. Snapshots are dropped on configuration changes, see {@link #clear()}. User settings which can
+ * change without a configuration change, like the 24 hour setting, must not be kept in here.
+ */
+final class EnvironmentSnapshot {
+
+    // themes belong to their activity, so don't keep them alive
+    private static final Map<Resources.Theme, EnvironmentSnapshot> snapshots = new WeakHashMap<>();
+
+    // permissions can't change while our process is running
+    private static Boolean vibratePermission;
+
+    private static String[] weekDayNames;
+    private static Locale weekDayNamesLocale;
+
+    private final boolean darkTheme;
+    private final Locale locale;
+
+    private EnvironmentSnapshot(Context context) {
+        darkTheme = isUsingDarkTheme(context);
+        locale = Locale.getDefault();
+    }
+
+    /**
+     * Gets the snapshot for the given context's theme, creating it if needed.
+     * @param context The context of the view, through which the theme is accessed.
+     * @return The shared snapshot.
+     */
+    static synchronized EnvironmentSnapshot get(Context context) {
+        final Resources.Theme theme = context.getTheme();
+        EnvironmentSnapshot snapshot = snapshots.get(theme);
+        if(snapshot == null || !snapshot.locale.equals(Locale.getDefault())) {
+            snapshot = new EnvironmentSnapshot(context);
+            snapshots.put(theme, snapshot);
+        }
+        if(vibratePermission == null) {
+            vibratePermission = context.checkCallingOrSelfPermission("android.permission.VIBRATE")
+                    == PackageManager.PERMISSION_GRANTED;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops all snapshots, needs to be called when the configuration may have changed.
+     */
+    static synchronized void clear() {
+        snapshots.clear();
+    }
+
+    /**
+     * Checks whether the theme uses light text, meaning it has a dark background.
+     */
+    boolean isDarkTheme() {
+        return darkTheme;
+    }
+
+    /**
+     * Checks whether our app is allowed to vibrate, which the picker dialogs do on selection.
+     */
+    boolean hasVibratePermission() {
+        return vibratePermission;
+    }
+
+    /**
+     * Gets the weekday names of the default locale, which don't depend on any theme.
+     * @return The names indexed by the Calendar weekday constants, do not modify them.
+     */
+    static synchronized String[] getWeekDayNames() {
+        final Locale locale = Locale.getDefault();
+        if(weekDayNames == null || !locale.equals(weekDayNamesLocale)) {
+            weekDayNames = new DateFormatSymbols(locale).getWeekdays();
+            weekDayNamesLocale = locale;
+        }
+        return weekDayNames;
+    }
+
+    private static boolean isUsingDarkTheme(Context context) {
+        final TypedArray themeArray = context.getTheme().obtainStyledAttributes(
+                new int[] {android.R.attr.textColorPrimary});
+        final int textColor = themeArray.getColor(0, 0);
+        themeArray.recycle();
+        return brightness(textColor) > 0.5f;
+    }
+
+    /**
+     * Returns the brightness component of a color int. Taken from android.graphics.Color.
+     *
+     * @return A value between 0.0f and 1.0f
+     */
+    private static float brightness(int color) {
+        int r = (color >> 16) & 0xFF;
+        int g = (color >> 8) & 0xFF;
+        int b = color & 0xFF;
+
+        int V = Math.max(b, Math.max(r, g));
+        return (V / 255.f);
+    }
+}
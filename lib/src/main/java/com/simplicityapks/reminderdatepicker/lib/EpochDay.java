@@ -0,0 +1,156 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Static helpers to convert dates into a single day number (days since January 1, 1970), so dates
+ * can be compared and used as keys without creating or querying Calendar objects.
+ */
+public final class EpochDay {
+
+    /**
+     * Returned instead of a day number if there is no date, e.g. when nothing is selected.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    static final long MILLIS_PER_MINUTE = 60 * 1000;
+    static final long MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+
+    private EpochDay() {
+        // no instances
+    }
+
+    /**
+     * Converts the given date to its day number, counted in the proleptic Gregorian calendar.
+     * @param year The year.
+     * @param month The month of year, zero-indexed like in Calendar (so 11 is December).
+     * @param day The day of the month.
+     * @return The number of days since January 1, 1970 (negative for earlier dates).
+     */
+    public static int of(int year, int month, int day) {
+        // shift the year so it starts in March, which puts the leap day at its end
+        final int m = month + 1;
+        final int y = m <= 2? year - 1 : year;
+        final int era = (y >= 0? y : y - 399) / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (m > 2? m - 3 : m + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Converts the given point in time to the day number of its date in the given time zone.
+     * @param millis Milliseconds since January 1, 1970 UTC (like System.currentTimeMillis()).
+     * @param zone The time zone to get the date in.
+     * @return The number of days since January 1, 1970.
+     */
+    public static int ofMillis(long millis, TimeZone zone) {
+        final long localMillis = millis + zone.getOffset(millis);
+        // round towards negative infinity for dates before 1970
+        final long day = localMillis / MILLIS_PER_DAY;
+        return (int) (localMillis < 0 && day * MILLIS_PER_DAY != localMillis? day - 1 : day);
+    }
+
+    /**
+     * Converts the date of the given Calendar to its day number, in the Calendar's own time zone.
+     * This only needs the Calendar's time and time zone, so none of its fields have to be computed.
+     * @param calendar The Calendar, its time of day is ignored.
+     * @return The number of days since January 1, 1970.
+     */
+    public static int of(Calendar calendar) {
+        return ofMillis(calendar.getTimeInMillis(), calendar.getTimeZone());
+    }
+
+    /**
+     * Gets the time of day of the given point in time in the given time zone.
+     * @param millis Milliseconds since January 1, 1970 UTC (like System.currentTimeMillis()).
+     * @param zone The time zone to get the time in.
+     * @return The number of minutes since midnight.
+     */
+    public static int getMinuteOfDay(long millis, TimeZone zone) {
+        final long localMillis = millis + zone.getOffset(millis);
+        final long millisOfDay = localMillis % MILLIS_PER_DAY;
+        // the remainder is negative for times before 1970
+        return (int) ((millisOfDay < 0? millisOfDay + MILLIS_PER_DAY : millisOfDay) / MILLIS_PER_MINUTE);
+    }
+
+    /**
+     * Gets the day number of the current date in the default time zone.
+     * @return The number of days since January 1, 1970.
+     */
+    public static int today() {
+        return ofMillis(System.currentTimeMillis(), TimeZone.getDefault());
+    }
+
+    /**
+     * Gets the year of the given day number.
+     * @param epochDay The number of days since January 1, 1970.
+     * @return The year.
+     */
+    public static int getYear(int epochDay) {
+        final int dayOfEra = getDayOfEra(epochDay);
+        final int yearOfEra = getYearOfEra(dayOfEra);
+        final int month = getShiftedMonth(dayOfEra, yearOfEra);
+        final int year = yearOfEra + getEra(epochDay) * 400;
+        // our shifted year starts in March, so January and February belong to the next year
+        return month >= 10? year + 1 : year;
+    }
+
+    /**
+     * Gets the month of the given day number.
+     * @param epochDay The number of days since January 1, 1970.
+     * @return The month of year, zero-indexed like in Calendar (so 11 is December).
+     */
+    public static int getMonth(int epochDay) {
+        final int dayOfEra = getDayOfEra(epochDay);
+        final int month = getShiftedMonth(dayOfEra, getYearOfEra(dayOfEra));
+        return month < 10? month + 2 : month - 10;
+    }
+
+    /**
+     * Gets the day of the month of the given day number.
+     * @param epochDay The number of days since January 1, 1970.
+     * @return The day of the month, starting at 1.
+     */
+    public static int getDayOfMonth(int epochDay) {
+        final int dayOfEra = getDayOfEra(epochDay);
+        final int yearOfEra = getYearOfEra(dayOfEra);
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        return dayOfYear - (153 * getShiftedMonth(dayOfEra, yearOfEra) + 2) / 5 + 1;
+    }
+
+    /**
+     * Converts the given local date and time to milliseconds since the epoch (like Calendar.getTimeInMillis()).
+     * @param epochDay The number of days since January 1, 1970.
+     * @param minuteOfDay The number of minutes since midnight.
+     * @param zone The time zone the date and time are given in.
+     * @return The date and time in UTC milliseconds.
+     */
+    public static long toMillis(int epochDay, int minuteOfDay, TimeZone zone) {
+        final long localMillis = epochDay * MILLIS_PER_DAY + minuteOfDay * MILLIS_PER_MINUTE;
+        final int offset = zone.getOffset(localMillis - zone.getRawOffset());
+        // the offset may be different at the resulting time if we are close to a daylight saving switch
+        final int correctedOffset = zone.getOffset(localMillis - offset);
+        return localMillis - correctedOffset;
+    }
+
+    private static int getEra(int epochDay) {
+        final int shifted = epochDay + 719468;
+        return (shifted >= 0? shifted : shifted - 146096) / 146097;
+    }
+
+    private static int getDayOfEra(int epochDay) {
+        return epochDay + 719468 - getEra(epochDay) * 146097;
+    }
+
+    private static int getYearOfEra(int dayOfEra) {
+        return (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    }
+
+    // the month counted from March, so 0 is March and 11 is February
+    private static int getShiftedMonth(int dayOfEra, int yearOfEra) {
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        return (5 * dayOfYear + 2) / 153;
+    }
+}
@@ -0,0 +1,219 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.annotation.Nullable;
+
+import java.text.Format;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Process wide cache of formatted date and time labels, so the same time of day or date doesn't
+ * need to be formatted again for every item and spinner. Labels are identified by their kind, the
+ * format used (or null for the system default format) and the minute of day or epoch day.
+ * All labels are dropped when the default locale or time zone changes, and date labels also when
+ * the year changes, as the default formats only show the year for dates in other years.
+ * Looking up the default time zone creates a copy of it, so once {@link #watchTimeZone(Context)} has
+ * been called the zone is only looked up again after the system broadcast a time zone change.
+ */
+final class LabelCache {
+
+    /**
+     * A time label, the value is the minute of day.
+     */
+    static final int KIND_TIME = 0;
+    /**
+     * A date label, the value is the epoch day.
+     */
+    static final int KIND_DATE = 1;
+    /**
+     * A numeric date label as used for the secondary text, the value is the epoch day.
+     */
+    static final int KIND_SECONDARY_DATE = 2;
+
+    // enough for all items of a few differently formatted pickers and their temporary selections
+    private static final int MAX_ENTRIES = 256;
+
+    private static final Map<Key, String> cache =
+            new LinkedHashMap<Key, String>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    // a few pickers rarely use more than a handful of formats, so this is only a safety net
+    private static final int MAX_FORMATS = 16;
+
+    // our own copies of the formats, one per distinct format, shared by all keys using it
+    private static final Map<Object, Object> formats = new HashMap<>();
+
+    // reused for lookups so a cache hit doesn't allocate, only accessed while holding the lock
+    private static final Key lookupKey = new Key();
+
+    private static Locale cachedLocale;
+    private static TimeZone cachedTimeZone;
+    private static String cachedTimeZoneId;
+    private static Context timeZoneContext;
+    private static BroadcastReceiver timeZoneReceiver;
+    // set from the main thread when the system time zone has changed
+    private static volatile boolean timeZoneChanged = true;
+    // the current year in the cached time zone, date labels have been formatted for it
+    private static long yearStartMillis;
+    private static long yearEndMillis;
+
+    private LabelCache() {
+        // no instances
+    }
+
+    /**
+     * Gets a previously formatted label.
+     * @param kind One of the KIND constants.
+     * @param format The format the label has been formatted with, or null for the default format.
+     * @param value The minute of day or epoch day, depending on the kind.
+     * @return The label, or null if it is not cached.
+     */
+    static synchronized @Nullable String get(int kind, @Nullable Object format, int value) {
+        checkEnvironment();
+        lookupKey.set(kind, format, value);
+        final String label = cache.get(lookupKey);
+        // don't keep the format alive
+        lookupKey.format = null;
+        return label;
+    }
+
+    /**
+     * Saves a formatted label, see {@link #get(int, Object, int)} for the parameters.
+     */
+    static synchronized void put(int kind, @Nullable Object format, int value, String label) {
+        checkEnvironment();
+        final Key key = new Key();
+        key.set(kind, getOwnFormat(format), value);
+        cache.put(key, label);
+    }
+
+    /**
+     * Removes all cached labels, needs to be called when the resources or time zone may have changed.
+     */
+    static synchronized void clear() {
+        cache.clear();
+        formats.clear();
+        timeZoneChanged = true;
+    }
+
+    /**
+     * Starts listening for changes of the system time zone, so the default time zone doesn't need to
+     * be looked up for every label. Does nothing if we are already listening.
+     * Changes through {@link TimeZone#setDefault(TimeZone)} are only noticed by {@link #clear()}.
+     * @param context Any context, only its application context is used.
+     */
+    static synchronized void watchTimeZone(Context context) {
+        final Context appContext = context.getApplicationContext();
+        // there is only one application per process, except in tests
+        if(appContext == timeZoneContext)
+            return;
+        timeZoneContext = appContext;
+        timeZoneReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                timeZoneChanged = true;
+            }
+        };
+        appContext.registerReceiver(timeZoneReceiver,
+                new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
+        // the zone may have changed while we were not listening
+        timeZoneChanged = true;
+    }
+
+    /**
+     * Gets the number of format copies the cached labels currently share.
+     */
+    static synchronized int getFormatCount() {
+        return formats.size();
+    }
+
+    // formats are mutable, so the keys need their own copy, but one copy per format is enough
+    private static Object getOwnFormat(@Nullable Object format) {
+        if(!(format instanceof Format))
+            return format;
+        Object ownFormat = formats.get(format);
+        if(ownFormat == null) {
+            if(formats.size() >= MAX_FORMATS)
+                formats.clear();
+            ownFormat = ((Format) format).clone();
+            formats.put(ownFormat, ownFormat);
+        }
+        return ownFormat;
+    }
+
+    // drops all labels if they have been formatted for another locale, time zone or year
+    private static void checkEnvironment() {
+        final Locale locale = Locale.getDefault();
+        if(timeZoneReceiver == null || timeZoneChanged || cachedTimeZone == null) {
+            // reset first, so a change while we look up the zone is noticed next time
+            timeZoneChanged = false;
+            cachedTimeZone = TimeZone.getDefault();
+        }
+        final TimeZone zone = cachedTimeZone;
+        final String timeZoneId = zone.getID();
+        final long now = System.currentTimeMillis();
+        if(!locale.equals(cachedLocale) || !timeZoneId.equals(cachedTimeZoneId)) {
+            cache.clear();
+            formats.clear();
+            cachedLocale = locale;
+            cachedTimeZoneId = timeZoneId;
+            updateYear(now, zone);
+        }
+        else if(now < yearStartMillis || now >= yearEndMillis) {
+            // the time labels don't depend on the year, so only drop the date labels
+            final Iterator<Key> keys = cache.keySet().iterator();
+            while(keys.hasNext()) {
+                if(keys.next().kind != KIND_TIME)
+                    keys.remove();
+            }
+            updateYear(now, zone);
+        }
+    }
+
+    private static void updateYear(long now, TimeZone zone) {
+        final int year = EpochDay.getYear(EpochDay.ofMillis(now, zone));
+        yearStartMillis = EpochDay.toMillis(EpochDay.of(year, 0, 1), 0, zone);
+        yearEndMillis = EpochDay.toMillis(EpochDay.of(year + 1, 0, 1), 0, zone);
+    }
+
+    private static final class Key {
+        int kind;
+        Object format;
+        int value;
+
+        void set(int kind, Object format, int value) {
+            this.kind = kind;
+            this.format = format;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Key))
+                return false;
+            final Key key = (Key) obj;
+            return kind == key.kind && value == key.value
+                    && (format == null? key.format == null : format.equals(key.format));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = kind;
+            result = 31 * result + value;
+            result = 31 * result + (format == null? 0 : format.hashCode());
+            return result;
+        }
+    }
+}
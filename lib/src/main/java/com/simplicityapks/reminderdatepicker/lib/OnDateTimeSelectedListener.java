@@ -0,0 +1,17 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+/**
+ * Implement this interface if you want to be notified whenever the selected date changes, without
+ * a Calendar being created for each selection.
+ */
+public interface OnDateTimeSelectedListener {
+    /**
+     * Called whenever a new date is selected in the Picker calling this.
+     * @param year The selected year.
+     * @param month The selected month of year, zero-indexed (so 11 is December).
+     * @param day The selected day of the month.
+     * @param hour The selected hour of the day.
+     * @param minute The selected minute of the hour.
+     */
+    void onDateTimeSelected(int year, int month, int day, int hour, int minute);
+}
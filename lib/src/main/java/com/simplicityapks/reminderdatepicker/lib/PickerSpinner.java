@@ -1,15 +1,15 @@
 package com.simplicityapks.reminderdatepicker.lib;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.content.res.XmlResourceParser;
-import android.os.Bundle;
+import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.XmlRes;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.SpinnerAdapter;
@@ -18,8 +18,11 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.text.Format;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Base class for both DateSpinner and TimeSpinner.
@@ -35,12 +38,37 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
     public static final String XML_ATTR_ID = "id";
     public static final String XML_ATTR_TEXT = "text";
 
-    // Indicates that the onItemSelectedListener callback should not be passed to the listener.
-    private final ArrayList<Integer> interceptSelectionCallbacks = new ArrayList<>();
-    // Indicates that the selection should be restored after initialization (setSelection has not been called externally)
-    private boolean restoreTemporarySelection = false;
-    // Indicates that the temporary item should be reselected after an item is removed
-    private boolean reselectTemporaryItem = false;
+    // The position the view should show. The system resets the selection when the data set changes
+    // (the temporary item is out of its range) or the state is restored, which onLayout() undoes.
+    private int targetPosition = INVALID_POSITION;
+    // Indicates that the listener still needs to be called for the latest selection change
+    private boolean notifySelection = false;
+    private OnItemSelectedListener selectionListener;
+    // The item the listener has last been called for, so selecting it again is not reported twice
+    private Object notifiedItem = null;
+    // Calls the listener once for all selection changes since it has been posted, like the system does
+    private final Runnable selectionNotifier = new Runnable() {
+        @Override
+        public void run() {
+            notifySelection = false;
+            final int position = getSelectedItemPosition();
+            final Object item = getSelectedItem();
+            if(position == INVALID_POSITION || item == notifiedItem)
+                return;
+            notifiedItem = item;
+            if(selectionListener != null)
+                selectionListener.onItemSelected(PickerSpinner.this, getSelectedView(), position,
+                        getSelectedItemId());
+        }
+    };
+
+    // Nesting depth of beginUpdate() calls, changes are only applied to the view when it drops to 0 again
+    private int updateDepth = 0;
+    // The selected item during an update, as the selected position is not kept up to date until endUpdate()
+    private TwinTextItem updateSelection = null;
+    private int updateSelectionPosition = INVALID_POSITION;
+    // Indicates that the selection has been changed from outside during the update
+    private boolean updateSelectionChanged = false;
 
     /**
      * Construct a new PickerSpinner with the given context's theme.
@@ -69,6 +97,8 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
      */
     public PickerSpinner(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs);
+        // our items are labelled through the LabelCache, which should not look up the zone each time
+        LabelCache.watchTimeZone(context);
         initAdapter(context);
     }
 
@@ -83,60 +113,113 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
     @NonNull
     @Override
     public Parcelable onSaveInstanceState() {
-        // our temporary selection will not be saved
+        final SavedState state = new SavedState(super.onSaveInstanceState());
+        // our temporary selection will not be saved by the Spinner, so save it ourselves
         if(getSelectedItemPosition() == getAdapter().getCount()) {
-            Bundle state = new Bundle();
-            state.putParcelable("superState", super.onSaveInstanceState());
-            // save the TwinTextItem using its toString() method
-            state.putString("temporaryItem", getSelectedItem().toString());
-            return state;
+            final TwinTextItem item = (TwinTextItem) getSelectedItem();
+            final int value = getTemporarySelectionValue(item);
+            if(value != NO_TEMPORARY_VALUE) {
+                state.temporaryValue = value;
+                state.flags |= SavedState.FLAG_TEMPORARY_VALUE;
+            }
+            else {
+                // save the TwinTextItem using its toString() method
+                state.temporaryString = item.toString();
+                state.flags |= SavedState.FLAG_TEMPORARY_STRING;
+            }
         }
-        else return super.onSaveInstanceState();
+        return state;
     }
 
     @Override
     public void onRestoreInstanceState(Parcelable state) {
-        if(state instanceof Bundle) {
-            Bundle bundle = (Bundle) state;
-            super.onRestoreInstanceState(bundle.getParcelable("superState"));
-            final String tempItem = bundle.getString("temporaryItem");
-            restoreTemporarySelection(tempItem);
+        if(state instanceof SavedState) {
+            final SavedState savedState = (SavedState) state;
+            super.onRestoreInstanceState(savedState.getSuperState());
+            // keep the restored selection instead of what has been selected during initialization
+            targetPosition = INVALID_POSITION;
+            if((savedState.flags & SavedState.FLAG_TEMPORARY_VALUE) != 0)
+                restoreTemporarySelection(savedState.temporaryValue);
+            else if((savedState.flags & SavedState.FLAG_TEMPORARY_STRING) != 0)
+                restoreTemporarySelection(savedState.temporaryString);
         }
         else super.onRestoreInstanceState(state);
     }
 
+    /**
+     * The instance state of a PickerSpinner. A temporary selection is saved as a single int (like the
+     * epoch day of a date) from which it is recreated with freshly formatted texts, so the state stays
+     * small even for long lists of pickers.
+     */
+    static class SavedState extends BaseSavedState {
+        static final int FLAG_TEMPORARY_VALUE = 1;
+        static final int FLAG_TEMPORARY_STRING = 2;
+
+        int flags;
+        int temporaryValue;
+        String temporaryString;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            flags = in.readInt();
+            if((flags & FLAG_TEMPORARY_VALUE) != 0)
+                temporaryValue = in.readInt();
+            if((flags & FLAG_TEMPORARY_STRING) != 0)
+                temporaryString = in.readString();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int parcelFlags) {
+            super.writeToParcel(out, parcelFlags);
+            out.writeInt(flags);
+            if((flags & FLAG_TEMPORARY_VALUE) != 0)
+                out.writeInt(temporaryValue);
+            if((flags & FLAG_TEMPORARY_STRING) != 0)
+                out.writeString(temporaryString);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public void setVisibility(int visibility) {
-        super.setVisibility(visibility);
-        // When going from state gone to visible with a temporary item selected, but the array has
-        // changed (by toggling FLAG_MORE_TIME), the position is somehow reset by the system, so we
-        // need to reselect the temporary item (even if it was already selected).
-        // This is merely a workaround as I can't find a better solution.
-        if(visibility == VISIBLE) {
-            reselectTemporaryItem = false;
-            PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
-            int count = adapter.getCount();
-            // check whether we have the temporary item selected
-            if(getSelectedItemPosition() == count) {
-                // get the temp item from the adapter to reselect it later:
-                TwinTextItem tempItem = null;
-                try {
-                    tempItem = adapter.getItem(count);
-                } catch (IndexOutOfBoundsException e) {
-                    Log.d("PickerSpinner", "SetVisibility: Couldn't get temporary item from adapter, aborting workaround");
-                }
-                // now reselect the temporary item
-                if(tempItem != null) {
-                    selectTemporary(tempItem);
-                }
-            }
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        final int position = super.getSelectedItemPosition();
+        if(targetPosition == INVALID_POSITION || !isSelectablePosition(targetPosition)) {
+            // take over the selection made by the system, like the restored one after rotation
+            targetPosition = position;
+            if(position != INVALID_POSITION)
+                postSelectionCallback();
+        }
+        else if(position != targetPosition) {
+            // the system has reset our selection (like after toggling FLAG_MORE_TIME or on rotation),
+            // this lays out again right away instead of requesting another layout pass
+            super.setSelection(targetPosition, false);
         }
-
     }
 
+    private boolean isSelectablePosition(int position) {
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        final int count = adapter.getCount();
+        return position >= 0 && (position < count || (position == count && adapter.getTemporarySelection() != null));
+    }
 
     /**
      * Sets the Adapter used to provide the data which backs this Spinner. Needs to be an {@link com.simplicityapks.reminderdatepicker.lib.PickerSpinnerAdapter}
@@ -161,15 +244,16 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
         PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
         if(position == adapter.getCount()-1 && adapter.hasFooter())
             onFooterClick(); // the footer has been clicked, so don't update the selection
+        else if(updateDepth > 0) {
+            // the item positions are valid during an update, but the view doesn't know about them yet
+            adapter.selectTemporary(null);
+            updateSelection = adapter.getItem(position);
+            updateSelectionChanged = true;
+        }
         else {
             // remove any previous temporary selection:
-            ((PickerSpinnerAdapter)getAdapter()).selectTemporary(null);
-            reselectTemporaryItem = false;
-            restoreTemporarySelection = false;
-            // check that the selection goes through:
-            interceptSelectionCallbacks.clear();
-            super.setSelection(position);
-            super.setSelection(position, false);
+            adapter.selectTemporary(null);
+            selectPosition(position, true);
         }
     }
 
@@ -178,14 +262,65 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
      * checking for footer clicks.
      */
     private void setSelectionQuietly(int position) {
-        // intercept the callback here:
-        interceptSelectionCallbacks.add(position);
-        superSetSelection(position);
+        selectPosition(position, false);
+    }
+
+    /**
+     * The only place where the selection of the view is changed. Requests at most one layout, and
+     * posts at most one listener callback for all changes until it is run.
+     * @param position The position to select.
+     * @param notify True to call the listener if another item than the last reported one is selected,
+     *               even if it is at the same position (like a new temporary item).
+     */
+    private void selectPosition(int position, boolean notify) {
+        targetPosition = position;
+        if(notify)
+            postSelectionCallback();
+        if(position != super.getSelectedItemPosition())
+            super.setSelection(position);
+    }
+
+    private void postSelectionCallback() {
+        if(!notifySelection && selectionListener != null) {
+            notifySelection = true;
+            post(selectionNotifier);
+        }
+    }
+
+    /**
+     * Checks whether a listener callback has been posted for a selection change and not been run yet.
+     */
+    boolean isSelectionCallbackPending() {
+        return notifySelection;
+    }
+
+    /**
+     * Drops the listener callback for the selection changes made so far, if it hasn't been called
+     * yet, and treats the current selection as reported. Used when the selection has not been changed
+     * by the user, like when binding new data.
+     */
+    void cancelSelectionCallback() {
+        if(notifySelection) {
+            notifySelection = false;
+            removeCallbacks(selectionNotifier);
+        }
+        notifiedItem = getSelectedItem();
     }
 
-    private void superSetSelection(int position) {
-        super.setSelection(position, false); // No idea why both setSelections are needed but it only works with both
-        super.setSelection(position);
+    /**
+     * Makes the view show the current item at the selected position. The Spinner reuses its view
+     * without asking the adapter if the position doesn't change, like when replacing the temporary item.
+     */
+    private void rebindSelectedView() {
+        final View view = getSelectedView();
+        if(view != null) {
+            final int position = getPositionForView(view);
+            if(position != INVALID_POSITION) {
+                getAdapter().getView(position, view, this);
+                // the texts might need more or less space
+                requestLayout();
+            }
+        }
     }
 
     /**
@@ -203,59 +338,218 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
         PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
         // pass on the call to the adapter (just stores the item):
         adapter.selectTemporary(item);
+        if(updateDepth > 0) {
+            // the selection will be applied in endUpdate()
+            updateSelection = item;
+            updateSelectionChanged = true;
+            return;
+        }
         final int tempItemPosition = adapter.getCount();
-        if(getSelectedItemPosition() == tempItemPosition) {
-            // this is quite a hack, first reset the position to 0 but intercept the callback,
-            // then redo the selection:
-            setSelectionQuietly(0);
+        if(super.getSelectedItemPosition() == tempItemPosition)
+            rebindSelectedView();
+        selectPosition(tempItemPosition, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The listener is called by the PickerSpinner itself rather than by the system, so:
+     * <ul>
+     *     <li>onItemSelected is called after {@link #setSelection(int)}, {@link #selectTemporary(TwinTextItem)},
+     *     a selection by the user and when the spinner takes over a selection made by the system,
+     *     like the restored one after rotation.</li>
+     *     <li>It is posted to the message queue, and called only once for all changes until then.</li>
+     *     <li>It is not called if the same item is selected again (a new temporary item is another
+     *     item, even at the same position), nor for the fixes done when modifying the adapter
+     *     items or when the system resets the selection.</li>
+     *     <li>onNothingSelected is passed on from the system, when the spinner has no items anymore.</li>
+     * </ul>
+     * {@link #getOnItemSelectedListener()} returns a wrapper, not the given listener.
+     */
+    @Override
+    public void setOnItemSelectedListener(final OnItemSelectedListener listener) {
+        selectionListener = listener;
+        if(listener == null) {
+            super.setOnItemSelectedListener(null);
+            return;
         }
-        super.setSelection(tempItemPosition);
-        // during initialization the system might check our selected position and reset it,
-        // thus we need to check after the message queue has been settled
-        if (!restoreTemporarySelection) {
-            restoreTemporarySelection = true;
-            post(new Runnable() {
-                @Override
-                public void run() {
-                    if (restoreTemporarySelection) {
-                        restoreTemporarySelection = false;
-                        reselectTemporaryItem = false;
-                        final int tempItemPosition = getAdapter().getCount();
-                        if (getSelectedItemPosition() != tempItemPosition)
-                            superSetSelection(tempItemPosition);
-                    }
+        super.setOnItemSelectedListener(new OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                // the system only reports position changes, we report item changes in selectionNotifier
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+                notifiedItem = null;
+                listener.onNothingSelected(parent);
+            }
+        });
+    }
+
+    /**
+     * Replaces the item at the specified position with another one, for instance to update its texts.
+     * If the replaced item was selected, the new one will be selected without any callback.
+     * @param index The position of the item to replace, must not be the footer or temporary selection.
+     * @param item The new item.
+     */
+    public void replaceAdapterItemAt(int index, TwinTextItem item) {
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        beginUpdate();
+        if(updateSelection == adapter.getItem(index))
+            updateSelection = item;
+        adapter.set(index, item);
+        endUpdate();
+    }
+
+    /**
+     * Selects a temporary item holding the same value as the removed selected item. As the selected
+     * value doesn't change, the listener is not called for it.
+     * @param removed The selected item which is removed.
+     * @param replacement The temporary item created for it by {@link #createTemporaryReplacement(TwinTextItem)}.
+     */
+    private void selectTemporaryReplacement(TwinTextItem removed, TwinTextItem replacement) {
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        adapter.selectTemporary(replacement);
+        if(notifiedItem == removed)
+            notifiedItem = replacement;
+        final int tempItemPosition = adapter.getCount();
+        if(super.getSelectedItemPosition() == tempItemPosition)
+            rebindSelectedView();
+        setSelectionQuietly(tempItemPosition);
+    }
+
+    /**
+     * Replaces the current temporary selection with another item, for instance to update its texts.
+     * Unlike {@link #selectTemporary(TwinTextItem)}, no callback is made.
+     * @param item The new temporary item.
+     */
+    protected void replaceTemporarySelection(TwinTextItem item) {
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        beginUpdate();
+        if(updateSelection != null && updateSelection == adapter.getTemporarySelection())
+            updateSelection = item;
+        adapter.selectTemporary(item);
+        endUpdate();
+    }
+
+    /**
+     * Starts a batch of changes to the adapter items. Until the matching {@link #endUpdate()}, the
+     * ...AdapterItem...() methods and selection changes only modify the data set without notifying
+     * the adapter's observers or fixing up the selection. Calls may be nested.
+     */
+    public void beginUpdate() {
+        if(updateDepth == 0) {
+            updateSelection = (TwinTextItem) getSelectedItem();
+            updateSelectionPosition = getSelectedItemPosition();
+            updateSelectionChanged = false;
+            ((PickerSpinnerAdapter) getAdapter()).setNotifyOnChange(false);
+        }
+        updateDepth++;
+    }
+
+    /**
+     * Finishes a batch of changes started with {@link #beginUpdate()}. When the outermost update is
+     * finished, observers are notified once and the selection is fixed up once for all changes.
+     * @throws IllegalStateException If there is no update to finish.
+     */
+    public void endUpdate() {
+        if(updateDepth == 0)
+            throw new IllegalStateException("endUpdate() called without matching beginUpdate()");
+        if(--updateDepth > 0)
+            return;
+
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        final TwinTextItem selected = updateSelection;
+        final boolean selectionChanged = updateSelectionChanged;
+        updateSelection = null;
+        updateSelectionChanged = false;
+        adapter.notifyDataSetChanged();
+        if(selected == null)
+            return;
+
+        final int count = adapter.getCount();
+        if(selected == adapter.getTemporarySelection()) {
+            // select the real item instead if an equal one has been added
+            final int last = getLastItemPosition();
+            for(int position = 0; position <= last; position++) {
+                if(selected.equals(adapter.getItem(position))) {
+                    adapter.selectTemporary(null);
+                    if(selectionChanged)
+                        setSelection(position);
+                    else if(position != super.getSelectedItemPosition())
+                        setSelectionQuietly(position);
+                    return;
                 }
-            });
+            }
+            if(selectionChanged)
+                selectTemporary(selected);
+            else if(super.getSelectedItemPosition() != count)
+                setSelectionQuietly(count);
+        }
+        else {
+            final int position = indexOfItem(selected);
+            if(position >= 0) {
+                if(selectionChanged)
+                    setSelection(position);
+                else if(position != super.getSelectedItemPosition())
+                    setSelectionQuietly(position);
+            }
+            else {
+                // the selected item has been removed
+                final TwinTextItem replacement = createTemporaryReplacement(selected);
+                if(replacement != null)
+                    selectTemporaryReplacement(selected, replacement);
+                else if(getLastItemPosition() >= 0)
+                    setSelection(Math.max(0, Math.min(updateSelectionPosition, getLastItemPosition())));
+            }
         }
     }
 
+    /**
+     * Checks whether an update started with {@link #beginUpdate()} is in progress.
+     * @return True if changes are currently batched, false otherwise.
+     */
+    public boolean isUpdating() {
+        return updateDepth > 0;
+    }
+
+    /**
+     * Finds the position of the given item instance in the adapter (excluding footer and temporary selection).
+     */
+    private int indexOfItem(TwinTextItem item) {
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        for(int position = getLastItemPosition(); position >= 0; position--) {
+            if(adapter.getItem(position) == item)
+                return position;
+        }
+        return INVALID_POSITION;
+    }
+
+    /**
+     * {@inheritDoc}
+     * During an update, this is the item that will be selected after {@link #endUpdate()}.
+     */
     @Override
-    public void setOnItemSelectedListener(final OnItemSelectedListener listener) {
-        super.setOnItemSelectedListener(
-                new OnItemSelectedListener() {
-                    @Override
-                    public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                        if (reselectTemporaryItem) {
-                            reselectTemporaryItem = false;
-                            final int tempItemPosition = getAdapter().getCount();
-                            if (position != tempItemPosition)
-                                setSelectionQuietly(tempItemPosition);
-                        }
-                        if (interceptSelectionCallbacks.contains(position)) {
-                            interceptSelectionCallbacks.remove((Integer) position);
-                        }
-                        // sometimes during rotation or initialization onItemSelected will be called with the footer selected, catch that
-                        else if (!(((PickerSpinnerAdapter) getAdapter()).hasFooter()
-                                && position == getLastItemPosition() + 1))
-                            listener.onItemSelected(parent, view, position, id);
-                    }
+    public Object getSelectedItem() {
+        if(updateDepth > 0)
+            return updateSelection;
+        return super.getSelectedItem();
+    }
 
-                    @Override
-                    public void onNothingSelected(AdapterView<?> parent) {
-                        listener.onNothingSelected(parent);
-                    }
-                }
-        );
+    /**
+     * {@inheritDoc}
+     * During an update, this is the current position of the item that will be selected after {@link #endUpdate()}.
+     */
+    @Override
+    public int getSelectedItemPosition() {
+        if(updateDepth > 0) {
+            final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+            if(updateSelection != null && updateSelection == adapter.getTemporarySelection())
+                return adapter.getCount();
+            return updateSelection == null? INVALID_POSITION : indexOfItem(updateSelection);
+        }
+        return super.getSelectedItemPosition();
     }
 
     /**
@@ -301,6 +595,11 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
      * @param index The index where it'll be at.
      */
     public void insertAdapterItem(TwinTextItem item, int index) {
+        if(updateDepth > 0) {
+            // the selection is fixed up in endUpdate()
+            ((PickerSpinnerAdapter) getAdapter()).insert(item, index);
+            return;
+        }
         int selection = getSelectedItemPosition();
         Object selectedItem = getSelectedItem();
         ((PickerSpinnerAdapter) getAdapter()).insert(item, index);
@@ -315,13 +614,28 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
     /**
      * Removes the specified item from the adapter and takes care of handling selection changes.
      * Always call this method instead of getAdapter().remove().
-     * Note that if you remove the selected item here, it will just reselect the next one instead of
-     * creating a temporary item containing the current selection.
+     * Note that if you remove the selected item here, it will just reselect the next one unless
+     * {@link #createTemporaryReplacement(TwinTextItem)} creates a temporary item for it (which the
+     * DateSpinner and TimeSpinner do). That temporary item holds the same value, so it is selected
+     * without calling the listener.
      * @param index The index of the item to be removed.
      */
     public void removeAdapterItemAt(int index) {
         PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
         int count = adapter.getCount();
+        final boolean normalItem = index < count && !(index == count-1 && adapter.hasFooter());
+        if(updateDepth > 0 && normalItem) {
+            // the selection is fixed up in endUpdate()
+            adapter.removeAt(index);
+            return;
+        }
+        if(normalItem && index == getSelectedItemPosition()) {
+            // keep the selected value as temporary item if our subclass supports it
+            final TwinTextItem removed = adapter.getItem(index);
+            final TwinTextItem replacement = createTemporaryReplacement(removed);
+            if(replacement != null)
+                selectTemporaryReplacement(removed, replacement);
+        }
         int selection = getSelectedItemPosition();
 
         // check which item will be removed:
@@ -337,21 +651,17 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
                 if(index == getLastItemPosition())  // it is the last real item
                     setSelection(selection - 1);
                 else {
-                    // we need to reselect the current item
-                    // (this is not guaranteed to fire a selection callback when multiple operations
-                    // modify the dataset, so it is a lot better to first select the item you want
-                    // to have selected, best by overriding this method in your subclass).
-                    setSelectionQuietly(index==0 && count>1? 1 : 0);
+                    // the next item moves up to the selected position, so reselect it to call the listener
+                    // (it is still better to first select the item you want to have selected, best by
+                    // overriding this method in your subclass).
                     setSelection(selection);
                 }
             }
             else if(index < selection && selection!=count) // we remove an item above it
                 setSelectionQuietly(selection - 1);
-            adapter.remove(adapter.getItem(index));
-            if(selection == count) { // we have a temporary item selected
-                reselectTemporaryItem = true;
+            adapter.removeAt(index);
+            if(selection == count) // we have a temporary item selected, which moves up as well
                 setSelectionQuietly(selection - 1);
-            }
         }
     }
 
@@ -364,16 +674,79 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
     public boolean removeAdapterItemById(int id) {
         PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
         boolean result = false;
-        for(int index = adapter.getCount()-1; index >= 0; index--) {
-            TwinTextItem item = adapter.getItem(index);
-            if(item.getId() == id) {
-                removeAdapterItemAt(index);
-                result = true;
-            }
+        int index;
+        // the adapter keeps an index of the item ids, so each lookup is cheap
+        while((index = adapter.getItemPosition(id)) >= 0) {
+            removeAdapterItemAt(index);
+            result = true;
         }
         return result;
     }
 
+    /**
+     * Gets the items currently shown in the dropdown, excluding footer and temporary selection.
+     * @return A new list containing the items, which may be modified and passed to {@link #applyItemDiff(List)}.
+     */
+    public ArrayList<TwinTextItem> getAdapterItems() {
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        final int last = getLastItemPosition();
+        ArrayList<TwinTextItem> items = new ArrayList<>(last + 1);
+        for(int position = 0; position <= last; position++)
+            items.add(adapter.getItem(position));
+        return items;
+    }
+
+    /**
+     * Replaces the spinner items with the given ones, only inserting and removing those items that
+     * differ from the current ones. All changes are applied as a single update (see {@link #beginUpdate()}),
+     * so observers are notified once and the selection is only fixed up once.
+     * Items are considered equal if they are the same instance or have the same id and are equal.
+     * @param newItems The new items to show in the dropdown, excluding footer and temporary selection.
+     */
+    public void applyItemDiff(List<TwinTextItem> newItems) {
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        final int newCount = newItems.size();
+        beginUpdate();
+        // first remove all items that are not needed anymore:
+        for(int position = getLastItemPosition(); position >= 0; position--) {
+            if(!containsSameItem(newItems, adapter.getItem(position)))
+                removeAdapterItemAt(position);
+        }
+        // the remaining items are in the new list, so walk both lists and insert the missing ones:
+        for(int position = 0; position < newCount; position++) {
+            final TwinTextItem item = newItems.get(position);
+            if(position > getLastItemPosition() || !isSameItem(adapter.getItem(position), item))
+                insertAdapterItem(item, position);
+        }
+        // anything left behind the new items has been in the wrong order:
+        for(int position = getLastItemPosition(); position >= newCount; position--)
+            removeAdapterItemAt(position);
+        endUpdate();
+    }
+
+    private static boolean containsSameItem(List<TwinTextItem> items, TwinTextItem item) {
+        for(int i = items.size()-1; i >= 0; i--) {
+            if(isSameItem(items.get(i), item))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isSameItem(TwinTextItem first, TwinTextItem second) {
+        return first == second || (first.getId() == second.getId() && first.equals(second));
+    }
+
+    /**
+     * Called when the selected item is removed from the adapter, to create a temporary item holding
+     * the same value that will be selected instead, without calling the listener. Returns null by
+     * default, override this in your subclass to keep the selection.
+     * @param removedItem The selected item which is removed.
+     * @return The temporary item to select, or null to select a neighbouring item instead.
+     */
+    protected @Nullable TwinTextItem createTemporaryReplacement(TwinTextItem removedItem) {
+        return null;
+    }
+
     /**
      * Gets the default list of items to be inflated into the Spinner, will be called once on
      * initializing the Spinner. Should use lazy initialization in inherited classes.
@@ -394,19 +767,93 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
     public abstract void onFooterClick();
 
     /**
-     * Called to restore a previously saved temporary selection. The given codeString has been saved
-     * using the toString() method on the TwinTextItem. This method should ideally only call
-     * {@link #selectTemporary(TwinTextItem)} with a new TwinTextItem parsed from the codeString.
+     * Returned by {@link #getTemporarySelectionValue(TwinTextItem)} if the item can't be saved as an int.
+     */
+    protected static final int NO_TEMPORARY_VALUE = Integer.MIN_VALUE;
+
+    /**
+     * Called to save a temporary selection in the instance state as a single int, like the epoch day
+     * of a date. Override this together with {@link #restoreTemporarySelection(int)}.
+     * @param item The temporary item.
+     * @return The value to restore the item from, or NO_TEMPORARY_VALUE to save the item's toString() instead.
+     */
+    protected int getTemporarySelectionValue(TwinTextItem item) {
+        return NO_TEMPORARY_VALUE;
+    }
+
+    /**
+     * Called to restore a temporary selection previously saved by {@link #getTemporarySelectionValue(TwinTextItem)}.
+     * This method should ideally only call {@link #selectTemporary(TwinTextItem)} with a new TwinTextItem
+     * created from the value.
+     * @param value The value saved for the item.
+     */
+    protected void restoreTemporarySelection(int value) {
+    }
+
+    /**
+     * Called to restore a previously saved temporary selection, if {@link #getTemporarySelectionValue(TwinTextItem)}
+     * did not return a value for it. The given codeString has been saved using the toString() method
+     * on the TwinTextItem. This method should ideally only call {@link #selectTemporary(TwinTextItem)}
+     * with a new TwinTextItem parsed from the codeString.
      * @param codeString The raw String saved from the item's toString() method.
      */
     protected abstract void restoreTemporarySelection(String codeString);
 
     /**
-     *
+     * Gets the items declared in the given xml resource. Parsed items are cached for all spinners
+     * in this process (per locale, day and {@link #getItemsFromXmlVariant()}), so the xml resource
+     * is only parsed by the first spinner and the others get copies of the same items (see {@link #copyItem(TwinTextItem)}).
+     * @param xmlResource The xml resource containing the items, whose tags are passed to {@link #parseItemFromXmlTag(XmlResourceParser)}.
+     * @return A new list of the items, which may be modified.
      */
     protected ArrayList<TwinTextItem> getItemsFromXml(@XmlRes int xmlResource)
             throws XmlPullParserException, IOException {
-        final Resources res = getResources();
+        final List<TwinTextItem> templates = obtainItemsFromXml(getResources(), xmlResource,
+                getItemsFromXmlVariant(), new XmlItemParser() {
+                    @Override
+                    public TwinTextItem parseItemFromXmlTag(@NonNull XmlResourceParser parser) {
+                        return PickerSpinner.this.parseItemFromXmlTag(parser);
+                    }
+                });
+
+        ArrayList<TwinTextItem> items = new ArrayList<>(templates.size());
+        for(TwinTextItem item : templates)
+            items.add(copyItem(item));
+        return items;
+    }
+
+    /**
+     * Parses single items at the current tag of an xml parser, so that items can be parsed without a
+     * spinner instance as well (see {@link ReminderDatePicker#warmUpCaches(android.content.Context, int)}).
+     */
+    interface XmlItemParser {
+        @Nullable TwinTextItem parseItemFromXmlTag(@NonNull XmlResourceParser parser);
+    }
+
+    /**
+     * Gets the cached items of the given xml resource for the current locale and day, parsing and
+     * caching them first if necessary. May be called from any thread, as long as the parser may.
+     * @param variant See {@link #getItemsFromXmlVariant()}.
+     * @return An unmodifiable list of the items.
+     */
+    static List<TwinTextItem> obtainItemsFromXml(Resources res, @XmlRes int xmlResource,
+                                                 @Nullable Object variant, XmlItemParser itemParser)
+            throws XmlPullParserException, IOException {
+        final Locale locale = res.getConfiguration().locale;
+        final int today = EpochDay.today();
+        List<TwinTextItem> templates = XmlItemCache.get(new XmlItemCache.Key(xmlResource, locale, today, variant));
+        if(templates == null) {
+            templates = parseItemsFromXml(res, xmlResource, itemParser);
+            // we save a copy of the variant, as it may be modified after we got it
+            XmlItemCache.put(new XmlItemCache.Key(xmlResource, locale, today, copyVariant(variant)), templates);
+            templates = Collections.unmodifiableList(templates);
+        }
+        return templates;
+    }
+
+    private static ArrayList<TwinTextItem> parseItemsFromXml(Resources res, @XmlRes int xmlResource,
+                                                             XmlItemParser itemParser)
+            throws XmlPullParserException, IOException {
         XmlResourceParser parser = res.getXml(xmlResource);
         ArrayList<TwinTextItem> items = new ArrayList<>();
 
@@ -414,15 +861,60 @@ public abstract class PickerSpinner extends android.support.v7.widget.AppCompatS
         while((eventType = parser.next()) != XmlPullParser.END_DOCUMENT) {
             if(eventType == XmlPullParser.START_TAG) {
                 // call our subclass to parse the correct item
-                TwinTextItem item = parseItemFromXmlTag(parser);
+                TwinTextItem item = itemParser.parseItemFromXmlTag(parser);
                 if(item != null)
                     items.add(item);
             }
         }
+        parser.close();
 
         return items;
     }
 
+    private static Object copyVariant(Object variant) {
+        if(variant instanceof Format)
+            return ((Format) variant).clone();
+        return variant;
+    }
+
+    /**
+     * Override this method if the items parsed in {@link #parseItemFromXmlTag(XmlResourceParser)}
+     * depend on anything else than the locale and the current day, for instance a custom date format.
+     * @return An object implementing equals() and hashCode(), or null if the items only depend on locale and day.
+     */
+    protected @Nullable Object getItemsFromXmlVariant() {
+        return null;
+    }
+
+    /**
+     * Creates a copy of the given cached item for this spinner, as the cached items are shared by all
+     * spinners in the process. DateItems and TimeItems are copied, because they can still be disabled
+     * through their deprecated setEnabled(). Override this method if your custom items are mutable,
+     * so changes in one spinner are not visible in the others.
+     * @param item The item previously parsed by {@link #parseItemFromXmlTag(XmlResourceParser)}.
+     * @return The same item if it is immutable, or a copy of it.
+     */
+    protected TwinTextItem copyItem(TwinTextItem item) {
+        // subclasses of our items might have more state, so only copy the items we know
+        if(item.getClass() == DateItem.class)
+            return ((DateItem) item).copy();
+        if(item.getClass() == TimeItem.class)
+            return ((TimeItem) item).copy();
+        return item;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        // the resources our cached items and labels have been created from may have changed
+        XmlItemCache.clear();
+        LabelCache.clear();
+        EnvironmentSnapshot.clear();
+    }
+
     /**
      * Override this method in your spinner, returning your specific item parsed from the given xml parser at the current tag.
      * Do not call parser.next() in here!
@@ -1,16 +1,19 @@
 package com.simplicityapks.reminderdatepicker.lib;
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.os.Build;
 import android.support.annotation.LayoutRes;
 import android.support.annotation.Nullable;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
 import android.widget.TextView;
 
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -65,6 +68,34 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
 
     private boolean showSecodaryTextInView = false;
 
+    /**
+     * The backing list of the ArrayAdapter, needed to remove items by their position.
+     */
+    private final List<TwinTextItem> items;
+
+    /**
+     * Maps item ids to their (last) position including the footer. Kept in sync when single items are
+     * inserted, removed or replaced, and only rebuilt lazily after changes of many items at once.
+     */
+    private final SparseIntArray idPositions = new SparseIntArray();
+    // the number of items with each id, so we know whether another item still has a removed item's id
+    private final SparseIntArray idCounts = new SparseIntArray();
+    private boolean idPositionsValid = false;
+
+    /**
+     * Incremented on every change of the items or their positions, so spinners can keep their own indexes.
+     */
+    private int modificationCount = 0;
+
+    // mirrors the private flag in ArrayAdapter, which is needed for removeAt()
+    private boolean notifyOnChange = true;
+
+    /**
+     * The positions of all disabled items. Items may be shared between adapters, so this state is
+     * kept here instead of in the items and moved along when items are inserted or removed.
+     */
+    private final BitSet disabledPositions = new BitSet();
+
     /**
      * Constructs a new PickerSpinnerAdapter with these params:
      * @param context The context needed by any Adapter.
@@ -73,6 +104,7 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
      */
     public PickerSpinnerAdapter(Context context, List<TwinTextItem> items, TwinTextItem footer) {
         super(context, R.layout.twin_text_item, items);
+        this.items = items;
         this.footer = footer;
         this.inflater = LayoutInflater.from(context);
     }
@@ -89,6 +121,7 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
     public PickerSpinnerAdapter(Context context, @LayoutRes int itemResource, @LayoutRes int dropDownResource,
                                 List<TwinTextItem> items, @LayoutRes int footerResource, TwinTextItem footer) {
         super(context, itemResource, items);
+        this.items = items;
         this.itemResource = itemResource;
         this.dropDownResource = dropDownResource;
         this.footerResource = footerResource;
@@ -101,18 +134,13 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
      */
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        View view;
-        if (convertView == null) {
-            view = inflater.inflate(itemResource, parent, false);
-        } else {
-            view = convertView;
-        }
+        final View view = obtainView(itemResource, convertView, parent);
         if(temporarySelection != null && position == getCount()) {
             // our inflated view acts as temporaryView:
-            return setTextsAndCheck(view, temporarySelection, showSecodaryTextInView);
+            return setTextsAndCheck(view, temporarySelection, temporarySelection.isEnabled(), showSecodaryTextInView);
         } else {
             // we have a normal item, set the texts:
-            return setTextsAndCheck(view, getItem(position), showSecodaryTextInView);
+            return setTextsAndCheck(view, getItem(position), isEnabled(position), showSecodaryTextInView);
         }
     }
 
@@ -121,42 +149,100 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
      */
     @Override
     public View getDropDownView(int position, View convertView, ViewGroup parent) {
-        // depending on the position, use super method or create our own
-        // we don't need to inflate a footer view if it uses the default resource, the superclass will do it:
+        // depending on the position, use the footer or the normal dropdown resource
+        // we don't need to inflate a footer view if it uses the default resource:
         if(footer == null || footerResource == 0 || position != getCount()-1) {
             // we have a normal item or a footer with same resource
-            return setTextsAndCheck(inflater.inflate(dropDownResource, parent, false), getItem(position), true);
+            return setTextsAndCheck(obtainView(dropDownResource, convertView, parent), getItem(position),
+                    isEnabled(position), true);
         } else {
             // if we want the footer, create it:
-            return setTextsAndCheck(inflater.inflate(footerResource, parent, false), footer, true);
+            return setTextsAndCheck(obtainView(footerResource, convertView, parent), footer, footer.isEnabled(), true);
+        }
+    }
+
+    /**
+     * Reuses the convertView if it has been inflated from the given layout resource, otherwise
+     * inflates a new view and attaches a ViewHolder to it.
+     */
+    private View obtainView(@LayoutRes int resource, View convertView, ViewGroup parent) {
+        if(convertView != null) {
+            final Object tag = convertView.getTag();
+            if(tag instanceof ViewHolder && ((ViewHolder) tag).resource == resource)
+                return convertView;
         }
+        final View view = inflater.inflate(resource, parent, false);
+        if (view == null) throw new IllegalArgumentException(
+                "The resource passed to constructor or setItemResource()/setFooterResource() is invalid");
+        view.setTag(new ViewHolder(view, resource));
+        return view;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Spinners only support a single view type, so footer and item views share one recycling pool
+     * and are told apart by the layout resource saved in their ViewHolder instead.
+     */
+    @Override
+    public int getViewTypeCount() {
+        return 1;
     }
 
-    private View setTextsAndCheck(View view, TwinTextItem item, boolean showSecondaryText) {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return 0;
+    }
+
+    private View setTextsAndCheck(View view, TwinTextItem item, boolean enabled, boolean showSecondaryText) {
         if (view == null) throw new IllegalArgumentException(
                 "The resource passed to constructor or setItemResource()/setFooterResource() is invalid");
-        final TextView primaryText = (TextView) view.findViewById(PRIMARY_TEXT_ID);
-        if (primaryText == null) throw new IllegalArgumentException(
+        Object tag = view.getTag();
+        if (!(tag instanceof ViewHolder)) {
+            // the view has not been created by obtainView(), so cache its TextViews now
+            tag = new ViewHolder(view, 0);
+            view.setTag(tag);
+        }
+        final ViewHolder holder = (ViewHolder) tag;
+        if (holder.primaryText == null) throw new IllegalArgumentException(
                 "The resource passed to constructor or setItemResource()/setFooterResource() does not " +
                         "contain a textview with id set to android.R.id.text1"
         );
-        primaryText.setText(item.getPrimaryText());
+        holder.primaryText.setText(item.getPrimaryText());
         // show a disabled state if the item is disabled
-        primaryText.setEnabled(item.isEnabled());
+        holder.primaryText.setEnabled(enabled);
 
-        final TextView secondaryText = (TextView) view.findViewById(SECONDARY_TEXT_ID);
-        if (secondaryText != null) {
-            if (showSecondaryText)
+        if (holder.secondaryText != null) {
+            if (showSecondaryText) {
                 // Note that we're including the secondary view in the measure even if no secondary text is there.
                 // The reason is that the spinner should never change its size when an item is selected,
                 // which would otherwise be possible when a temporary selection (but no other item) has a secondary text.
-                secondaryText.setText(item.getSecondaryText());
+                holder.secondaryText.setText(item.getSecondaryText());
+                holder.secondaryText.setVisibility(View.VISIBLE);
+            }
             else
-                secondaryText.setVisibility(View.GONE);
+                holder.secondaryText.setVisibility(View.GONE);
         }
         return view;
     }
 
+    /**
+     * Caches both TextViews of an inflated item view, so binding does not need to look them up again.
+     */
+    private static class ViewHolder {
+        final TextView primaryText, secondaryText;
+        // the layout resource this view has been inflated from, 0 if unknown
+        @LayoutRes final int resource;
+
+        ViewHolder(View view, @LayoutRes int resource) {
+            this.primaryText = (TextView) view.findViewById(PRIMARY_TEXT_ID);
+            this.secondaryText = (TextView) view.findViewById(SECONDARY_TEXT_ID);
+            this.resource = resource;
+        }
+    }
+
     /**
      * Push an item to be selected, but not shown in the dropdown menu. This is similar to calling
      * setText(item.toString()) if a Spinner had such a method.
@@ -166,6 +252,14 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
         this.temporarySelection = item;
     }
 
+    /**
+     * Gets the item previously set in {@link #selectTemporary(TwinTextItem)}.
+     * @return The temporary item, or null if there is none.
+     */
+    public @Nullable TwinTextItem getTemporarySelection() {
+        return this.temporarySelection;
+    }
+
 
     /**
      * {@inheritDoc}
@@ -186,26 +280,205 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
      * @return The specified TwinTextItem, or null if no item with the given id was found.
      */
     public @Nullable TwinTextItem getItemById(int id) {
-        for(int index = getCount()-1; index >= 0; index--) {
-            TwinTextItem item = getItem(index);
-            if(item.getId() == id)
-                return item;
-        }
-        return null;
+        final int position = getItemPosition(id);
+        return position < 0? null : getItem(position);
     }
 
     /**
      * Finds a spinner item's position in the data set by its id value (excluding any temporary selection).
+     * If multiple items share the same id, the last one's position is returned.
      * @param id The id of the item to search.
      * @return The position of the specified TwinTextItem, or -1 if no item with the given id was found.
      */
     public int getItemPosition(int id) {
-        for(int index = getCount()-1; index >= 0; index--) {
-            TwinTextItem item = getItem(index);
-            if(item.getId() == id)
-                return index;
+        if(!idPositionsValid) {
+            idPositions.clear();
+            idCounts.clear();
+            final int count = getCount();
+            for(int position = 0; position < count; position++)
+                indexId(getItem(position).getId(), position);
+            idPositionsValid = true;
+        }
+        return idPositions.get(id, -1);
+    }
+
+    /**
+     * Marks the id index as outdated, needs to be called when many items or their positions change at once.
+     * Changes of single items update the index instead, see {@link #insert(TwinTextItem, int)}.
+     */
+    private void invalidateIdPositions() {
+        idPositionsValid = false;
+        modificationCount++;
+    }
+
+    // adds the item at the given position to the id index
+    private void indexId(int id, int position) {
+        idCounts.put(id, idCounts.get(id) + 1);
+        if(idPositions.get(id, -1) < position)
+            idPositions.put(id, position);
+    }
+
+    // removes the item that has been at the given position from the id index, before the following positions are moved
+    private void unindexId(int id, int position) {
+        final int count = idCounts.get(id) - 1;
+        if(count == 0) {
+            idCounts.delete(id);
+            idPositions.delete(id);
+            return;
+        }
+        idCounts.put(id, count);
+        if(idPositions.get(id) == position) {
+            // another item before it has the same id, which is rare, so just search for it
+            int previous = position - 1;
+            while(items.get(previous).getId() != id)
+                previous--;
+            idPositions.put(id, previous);
+        }
+    }
+
+    // moves all indexed positions from the given one on by the offset
+    private void moveIdPositions(int from, int offset) {
+        for(int i = idPositions.size() - 1; i >= 0; i--) {
+            final int position = idPositions.valueAt(i);
+            if(position >= from)
+                idPositions.put(idPositions.keyAt(i), position + offset);
+        }
+    }
+
+    /**
+     * Gets a counter which changes whenever items are added, removed or moved (including the footer).
+     * Compare it to a previously saved value to check whether an index built on the positions is still valid.
+     * @return The number of modifications since this adapter has been created.
+     */
+    int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(TwinTextItem object) {
+        final int position = items.size();
+        modificationCount++;
+        if(idPositionsValid) {
+            moveIdPositions(position, 1);
+            indexId(object.getId(), position);
+        }
+        super.add(object);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addAll(Collection<? extends TwinTextItem> collection) {
+        invalidateIdPositions();
+        super.addAll(collection);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addAll(TwinTextItem... items) {
+        invalidateIdPositions();
+        super.addAll(items);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert(TwinTextItem object, int index) {
+        modificationCount++;
+        if(idPositionsValid) {
+            moveIdPositions(index, 1);
+            indexId(object.getId(), index);
+        }
+        insertEnabledState(index);
+        super.insert(object, index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(TwinTextItem object) {
+        final int position = items.indexOf(object);
+        if(position >= 0)
+            removeAt(position);
+    }
+
+    /**
+     * Removes the item at the specified position from the data set. Unlike {@link #remove(TwinTextItem)},
+     * this does not need to search for the item.
+     * @param position The position of the item to remove, must not be the footer or temporary selection.
+     */
+    public void removeAt(int position) {
+        modificationCount++;
+        final TwinTextItem removed = items.remove(position);
+        if(idPositionsValid) {
+            unindexId(removed.getId(), position);
+            moveIdPositions(position + 1, -1);
         }
-        return -1;
+        removeEnabledState(position);
+        if(notifyOnChange) notifyDataSetChanged();
+    }
+
+    /**
+     * Replaces the item at the specified position with another one, for instance to update its texts.
+     * @param position The position of the item to replace, must not be the footer or temporary selection.
+     * @param item The new item.
+     */
+    public void set(int position, TwinTextItem item) {
+        modificationCount++;
+        final TwinTextItem replaced = items.set(position, item);
+        if(idPositionsValid) {
+            unindexId(replaced.getId(), position);
+            indexId(item.getId(), position);
+        }
+        if(notifyOnChange) notifyDataSetChanged();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        invalidateIdPositions();
+        disabledPositions.clear();
+        super.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * As the items are moved, all items will be enabled again.
+     */
+    @Override
+    public void sort(Comparator<? super TwinTextItem> comparator) {
+        invalidateIdPositions();
+        disabledPositions.clear();
+        super.sort(comparator);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setNotifyOnChange(boolean notifyOnChange) {
+        super.setNotifyOnChange(notifyOnChange);
+        this.notifyOnChange = notifyOnChange;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyDataSetChanged() {
+        super.notifyDataSetChanged();
+        // ArrayAdapter resets its flag here as well
+        this.notifyOnChange = true;
     }
 
     /**
@@ -227,10 +500,52 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
 
     /**
      * {@inheritDoc}
+     * An item is disabled if either the item itself or this adapter (see {@link #setItemEnabled(int, boolean)})
+     * disables it.
      */
     @Override
     public boolean isEnabled(int position) {
-        return getItem(position).isEnabled();
+        return !disabledPositions.get(position) && getItem(position).isEnabled();
+    }
+
+    /**
+     * Enables or disables the item at the given position in this adapter only. Disabled items are
+     * shown in a disabled state and can not be selected in the dropdown.
+     * @param position The position of the item, must not be the footer or temporary selection.
+     * @param enabled True to enable, false to disable the item.
+     */
+    public void setItemEnabled(int position, boolean enabled) {
+        if(disabledPositions.get(position) == enabled) {
+            disabledPositions.set(position, !enabled);
+            if(notifyOnChange) notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Sets the enabled state of all items at once, notifying only once if anything changed.
+     * @param disabled The positions of all items to disable, all other items will be enabled. It is
+     *                 copied, so it may be reused by the caller.
+     */
+    public void setDisabledPositions(BitSet disabled) {
+        if(!disabledPositions.equals(disabled)) {
+            disabledPositions.clear();
+            disabledPositions.or(disabled);
+            if(notifyOnChange) notifyDataSetChanged();
+        }
+    }
+
+    // moves the enabled state of all items from the given position on one position up
+    private void insertEnabledState(int position) {
+        for(int i = disabledPositions.length() - 1; i >= position; i--)
+            disabledPositions.set(i + 1, disabledPositions.get(i));
+        disabledPositions.clear(position);
+    }
+
+    // removes the enabled state at the given position and moves all following ones down
+    private void removeEnabledState(int position) {
+        final int length = disabledPositions.length();
+        for(int i = position; i < length; i++)
+            disabledPositions.set(i, disabledPositions.get(i + 1));
     }
 
     /**
@@ -246,6 +561,15 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
      * @param footer An Object whose toString() will be the footer text, or null to disable the footer.
      */
     public void setFooter(TwinTextItem footer) {
+        modificationCount++;
+        if(idPositionsValid) {
+            // the footer is behind all items
+            final int position = items.size();
+            if(this.footer != null)
+                unindexId(this.footer.getId(), position);
+            if(footer != null)
+                indexId(footer.getId(), position);
+        }
         this.footer = footer;
     }
 
@@ -285,7 +609,8 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
     public void setShowSecondaryTextInView(boolean enable) {
         if (showSecodaryTextInView != enable) {
             showSecodaryTextInView = enable;
-            notifyDataSetChanged();
+            // when notifications are turned off, the change will be picked up with the next notification
+            if(notifyOnChange) notifyDataSetChanged();
         }
     }
 
@@ -299,23 +624,6 @@ public class PickerSpinnerAdapter extends ArrayAdapter<TwinTextItem> {
     }
 
     private boolean isActivityUsingDarkTheme() {
-        TypedArray themeArray = getContext().getTheme().obtainStyledAttributes(
-                new int[] {android.R.attr.textColorPrimary});
-        int textColor = themeArray.getColor(0, 0);
-        return brightness(textColor) > 0.5f;
-    }
-
-    /**
-     * Returns the brightness component of a color int. Taken from android.graphics.Color.
-     *
-     * @return A value between 0.0f and 1.0f
-     */
-    private float brightness(int color) {
-        int r = (color >> 16) & 0xFF;
-        int g = (color >> 8) & 0xFF;
-        int b = color & 0xFF;
-
-        int V = Math.max(b, Math.max(r, g));
-        return (V / 255.f);
+        return EnvironmentSnapshot.get(getContext()).isDarkTheme();
     }
 }
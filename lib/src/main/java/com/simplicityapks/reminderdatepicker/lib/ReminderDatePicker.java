@@ -19,6 +19,9 @@ import com.sleepbot.datetimepicker.time.TimePickerDialog;
 
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * A Google Keep like date and time picker for reminders, to be inflated via xml or constructor.
@@ -71,17 +74,30 @@ public class ReminderDatePicker extends LinearLayout implements AdapterView.OnIt
      */
     public static final int FLAG_HIDE_TIME = 32;     // 100000
 
+    /**
+     * Returned by {@link #getSelectedEpochMillis()} if no date is selected.
+     */
+    public static final long NO_SELECTION = Long.MIN_VALUE;
+
     // has FLAG_HIDE_TIME been set?
     private boolean shouldHideTime = false;
+    // the flags last passed to setFlags(), or -1 if it hasn't been called yet
+    private int flags = -1;
 
     private DateSpinner dateSpinner;
     private TimeSpinner timeSpinner;
+    // shown instead of the timeSpinner with FLAG_HIDE_TIME, created the first time it is needed
+    private ImageButton timeButton;
+    // the icon currently set on the timeButton, so it's only loaded again when the theme changes
+    private int timeButtonIcon = 0;
 
-    // This listener doesn't have to be implemented, if it is null just ignore it
+    // These listeners don't have to be implemented, if null just ignore
     private OnDateSelectedListener listener = null;
+    private OnDateTimeSelectedListener dateTimeListener = null;
 
     // To catch twice selecting the same date:
-    private Calendar lastSelectedDate = null;
+    private int lastSelectedEpochDay = EpochDay.NONE;
+    private int lastSelectedMinuteOfDay = -1;
 
     // To keep track whether we need to selectDefaultDate in onAttachToWindow():
     private boolean shouldSelectDefault = true;
@@ -119,6 +135,39 @@ public class ReminderDatePicker extends LinearLayout implements AdapterView.OnIt
         // Additional styling work is done here
     }
 
+    /**
+     * Fills the process wide caches the pickers read their items and labels from on a background
+     * thread, which includes parsing the xml items, loading their strings and formatting dates and
+     * times. Call this early when a screen will show many pickers.
+     * <p>
+     * The pickers still create their items themselves when they are inflated, just without parsing or
+     * formatting anything again. No items are handed to a particular picker, so this only pays off
+     * for pickers which
+     * <ul>
+     *     <li>use the default date and time formats (no {@link #setDateFormat} or {@link #setTimeFormat}),</li>
+     *     <li>get the same resources as the application context, so not for activities with their
+     *     own locale or configuration,</li>
+     *     <li>and are created on the same day in the same default locale.</li>
+     * </ul>
+     * Pickers created before the preparation has finished just create their items as usual.
+     * @param context Any context, only its application context is used.
+     * @param modeOrFlags A mode of ReminderDatePicker.MODE_... or multiple ReminderDatePicker.FLAG_...
+     *                    combined with the | operator, like the pickers will use.
+     * @return A Future that is done once the caches have been filled. It has no result.
+     */
+    public static Future<?> warmUpCaches(Context context, final int modeOrFlags) {
+        final Context appContext = context.getApplicationContext();
+        LabelCache.watchTimeZone(appContext);
+        return BackgroundExecutor.get().submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                DateSpinner.warmUpCaches(appContext, modeOrFlags);
+                TimeSpinner.warmUpCaches(appContext, modeOrFlags);
+                return null;
+            }
+        });
+    }
+
     private void init(Context context, AttributeSet attrs) {
         View.inflate(context, R.layout.reminder_date_picker, this);
         dateSpinner = (DateSpinner) findViewById(R.id.date_spinner);
@@ -129,6 +178,8 @@ public class ReminderDatePicker extends LinearLayout implements AdapterView.OnIt
         // check if the parent activity has our dateSelectedListener, automatically enable it:
         if(context instanceof OnDateSelectedListener)
             setOnDateSelectedListener((OnDateSelectedListener) context);
+        if(context instanceof OnDateTimeSelectedListener)
+            setOnDateTimeSelectedListener((OnDateTimeSelectedListener) context);
 
         // set gravity, for the timeButton when th eTimeSpinner is hidden:
         setGravity(Gravity.CENTER_VERTICAL);
@@ -162,67 +213,42 @@ public class ReminderDatePicker extends LinearLayout implements AdapterView.OnIt
      * Requires that the items are in ascending order (and that there is at least one item to select).
      */
     private void selectDefaultDate() {
-        Calendar today = Calendar.getInstance();
-        int hour = -1, minute = -1;
+        final long now = System.currentTimeMillis();
+        final TimeZone zone = TimeZone.getDefault();
+        final int today = EpochDay.ofMillis(now, zone);
+        int minuteOfDay = -1;
 
         // get the next possible selection
-        Calendar date = getNextItemDate(today);
+        int datePosition = dateSpinner.getNextDatePosition(today);
         // if it is the today item, we need to take a look the time
-        if(date != null && DateSpinner.compareCalendarDates(date, today) == 0) {
-            // same as getNextTimeDate for TimeSpinner
-            final int last = timeSpinner.getLastItemPosition();
-            final int searchHour = today.get(Calendar.HOUR_OF_DAY),
-                    searchMinute = today.get(Calendar.MINUTE);
-            for (int i=0; i<=last; i++) {
-                final TimeItem time = ((TimeItem) timeSpinner.getItemAtPosition(i));
-                if(time.getHour() > searchHour || (time.getHour() == searchHour && time.getMinute() >= searchMinute)) {
-                    hour = time.getHour();
-                    minute = time.getMinute();
-                    break;
-                }
-            }
+        if(datePosition >= 0 && getDateItem(datePosition).getEpochDay() == today) {
+            final int timePosition = timeSpinner.getNextTimePosition(EpochDay.getMinuteOfDay(now, zone));
+            if(timePosition >= 0)
+                minuteOfDay = ((TimeItem) timeSpinner.getItemAtPosition(timePosition)).getMinuteOfDay();
 
             // it may be too late in the evening to select the today item
             // or if FLAG_HIDE_TIME has been set, set it to tomorrow morning:
-            if((hour == -1 && minute == -1) || shouldHideTime) {
-                Calendar tomorrow = (Calendar) today.clone();
-                tomorrow.add(Calendar.DAY_OF_YEAR, 1);
-                date = getNextItemDate(tomorrow); // if this returns null it'll be set to today below
-            }
+            if(minuteOfDay == -1 || shouldHideTime)
+                datePosition = dateSpinner.getNextDatePosition(today + 1); // if this returns -1 it'll be set below
         }
-        if(date == null) {
+        if(datePosition < 0) {
             // it seems this spinner only contains past items, use the last one
-            date = ((DateItem) dateSpinner.getItemAtPosition(dateSpinner.getLastItemPosition())).getDate();
+            datePosition = dateSpinner.getLastItemPosition();
         }
 
-        if(hour == -1 && minute == -1) {
+        if(minuteOfDay == -1) {
             // the date is not today, just select the earliest possible time
-            final TimeItem time = ((TimeItem) timeSpinner.getItemAtPosition(0));
-            hour = time.getHour();
-            minute = time.getMinute();
+            minuteOfDay = ((TimeItem) timeSpinner.getItemAtPosition(0)).getMinuteOfDay();
         }
 
         // finally, select what we found
-        date.set(Calendar.HOUR_OF_DAY, hour);
-        date.set(Calendar.MINUTE, minute);
-        setSelectedDate(date);
+        final DateItem date = getDateItem(datePosition);
+        setSelectedDate(date.getYear(), date.getMonth(), date.getDay());
+        setSelectedTime(minuteOfDay / 60, minuteOfDay % 60);
     }
 
-    /**
-     * Gets the next date item's date equal to or later than the given date in the DateSpinner.
-     * Requires that the items are in ascending order.
-     * @return A date from the next item in the DateSpinner, or no such date was found.
-     */
-    private @Nullable Calendar getNextItemDate(Calendar searchDate) {
-        final int last = dateSpinner.getLastItemPosition();
-        for (int i=0; i<=last; i++) {
-            final Calendar date = ((DateItem) dateSpinner.getItemAtPosition(i)).getDate();
-            // use the DateSpinner's compare method so hours and minutes are not considered
-            if(DateSpinner.compareCalendarDates(date, searchDate) >= 0)
-                return date;
-        }
-        // not found
-        return null;
+    private DateItem getDateItem(int position) {
+        return (DateItem) dateSpinner.getItemAtPosition(position);
     }
 
     /**
@@ -230,16 +256,46 @@ public class ReminderDatePicker extends LinearLayout implements AdapterView.OnIt
      * @return The selected date as Calendar, or null if there is none.
      */
     public Calendar getSelectedDate() {
-        Calendar result = dateSpinner.getSelectedDate();
-        Calendar time = timeSpinner.getSelectedTime();
-        if(result!=null && time!=null) {
-            result.set(Calendar.HOUR_OF_DAY, time.get(Calendar.HOUR_OF_DAY));
-            result.set(Calendar.MINUTE, time.get(Calendar.MINUTE));
-            return result;
+        final Object date = dateSpinner.getSelectedItem();
+        final Object time = timeSpinner.getSelectedItem();
+        if(date instanceof DateItem && time instanceof TimeItem) {
+            final DateItem dateItem = (DateItem) date;
+            final TimeItem timeItem = (TimeItem) time;
+            return new GregorianCalendar(dateItem.getYear(), dateItem.getMonth(), dateItem.getDay(),
+                    timeItem.getHour(), timeItem.getMinute());
         }
         else return null;
     }
 
+    /**
+     * Gets the currently selected date (that the DateSpinner is showing) without creating a Calendar.
+     * @return The selected date as day number (see {@link EpochDay}), or {@link EpochDay#NONE} if there is none.
+     */
+    public int getSelectedEpochDay() {
+        return dateSpinner.getSelectedEpochDay();
+    }
+
+    /**
+     * Gets the currently selected time (that the TimeSpinner is showing) without creating a Calendar.
+     * @return The selected time as the number of minutes since midnight, or -1 if there is none.
+     */
+    public int getSelectedMinuteOfDay() {
+        return timeSpinner.getSelectedMinuteOfDay();
+    }
+
+    /**
+     * Gets the currently selected date and time (that the Spinners are showing) without creating a Calendar.
+     * @return The selected date in milliseconds since January 1, 1970 UTC (like Calendar.getTimeInMillis()),
+     *         or {@link #NO_SELECTION} if there is none.
+     */
+    public long getSelectedEpochMillis() {
+        final int epochDay = getSelectedEpochDay();
+        final int minuteOfDay = getSelectedMinuteOfDay();
+        if(epochDay == EpochDay.NONE || minuteOfDay == -1)
+            return NO_SELECTION;
+        return EpochDay.toMillis(epochDay, minuteOfDay, TimeZone.getDefault());
+    }
+
     /**
      * Sets the Spinners' selection as date considering both time and day.
      * @param date The date to be selected.
@@ -257,7 +313,7 @@ public class ReminderDatePicker extends LinearLayout implements AdapterView.OnIt
      * Sets the Spinners' date selection as integers considering only day.
      */
     public void setSelectedDate(int year, int month, int day) {
-        dateSpinner.setSelectedDate(new GregorianCalendar(year, month, day));
+        dateSpinner.setSelectedDate(year, month, day);
         // a custom selection has been set, don't select the default date:
         shouldSelectDefault = false;
     }
@@ -278,6 +334,14 @@ public class ReminderDatePicker extends LinearLayout implements AdapterView.OnIt
         this.listener = listener;
     }
 
+    /**
+     * Implement this interface if you want to be notified whenever the selected date changes, but
+     * don't need a Calendar. Can be used alongside an {@link OnDateSelectedListener}.
+     */
+    public void setOnDateTimeSelectedListener(OnDateTimeSelectedListener listener) {
+        this.dateTimeListener = listener;
+    }
+
     /**
      * Gets the default {@link DatePickerDialog} that is shown when the footer in the DateSpinner is clicked.
      * @return The dialog, or null if a custom date picker has been set and the default one is thus unused.
@@ -328,44 +392,38 @@ public class ReminderDatePicker extends LinearLayout implements AdapterView.OnIt
      * @param useDarkTheme True if a white icon shall be used, false for a dark one.
      */
     public void setHideTime(boolean enable, final boolean useDarkTheme) {
-        if(enable && !shouldHideTime) {
+        if(enable) {
             // hide the time spinner and show a button to show it instead
-            timeSpinner.setVisibility(GONE);
-            ImageButton timeButton = (ImageButton) LayoutInflater.from(getContext()).inflate(R.layout.time_button, null);
-            timeButton.setImageResource(useDarkTheme ? R.drawable.ic_action_time_dark : R.drawable.ic_action_time_light);
-            timeButton.setOnClickListener(new OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    setHideTime(false, useDarkTheme);
-                }
-            });
-            this.addView(timeButton);
-        } else if(!enable && shouldHideTime) {
+            final int icon = useDarkTheme ? R.drawable.ic_action_time_dark : R.drawable.ic_action_time_light;
+            if(timeButton == null) {
+                timeButton = (ImageButton) LayoutInflater.from(getContext()).inflate(R.layout.time_button, this, false);
+                timeButton.setOnClickListener(new OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        // the theme only matters for showing the button
+                        setHideTime(false, false);
+                    }
+                });
+                this.addView(timeButton);
+            }
+            if(icon != timeButtonIcon) {
+                timeButton.setImageResource(icon);
+                timeButtonIcon = icon;
+            }
+            if(!shouldHideTime) {
+                timeSpinner.setVisibility(GONE);
+                timeButton.setVisibility(VISIBLE);
+            }
+        } else if(shouldHideTime) {
+            // keep the button around for the next time
+            timeButton.setVisibility(GONE);
             timeSpinner.setVisibility(VISIBLE);
-            this.removeViewAt(2);
         }
         shouldHideTime = enable;
     }
 
     private boolean isActivityUsingDarkTheme() {
-        TypedArray themeArray = getContext().getTheme().obtainStyledAttributes(
-                new int[] {android.R.attr.textColorPrimary});
-        int textColor = themeArray.getColor(0, 0);
-        return brightness(textColor) > 0.5f;
-    }
-
-    /**
-     * Returns the brightness component of a color int. Taken from android.graphics.Color.
-     *
-     * @return A value between 0.0f and 1.0f
-     */
-    private float brightness(int color) {
-        int r = (color >> 16) & 0xFF;
-        int g = (color >> 8) & 0xFF;
-        int b = color & 0xFF;
-
-        int V = Math.max(b, Math.max(r, g));
-        return (V / 255.f);
+        return EnvironmentSnapshot.get(getContext()).isDarkTheme();
     }
 
     /**
@@ -446,21 +504,115 @@ public class ReminderDatePicker extends LinearLayout implements AdapterView.OnIt
      *                    combined with the | operator.
      */
     public void setFlags(int modeOrFlags) {
+        flags = modeOrFlags;
         // check each flag and pass it on if needed:
         setHideTime((modeOrFlags & FLAG_HIDE_TIME) != 0, isActivityUsingDarkTheme());
         dateSpinner.setFlags(modeOrFlags);
         timeSpinner.setFlags(modeOrFlags);
     }
 
+    /**
+     * Packs a date and time into a single long, for instance to store the selection in the model
+     * of a list row and pass it to {@link #bind(long, int)}.
+     * @param epochDay The date as day number, see {@link EpochDay}.
+     * @param minuteOfDay The time as the number of minutes since midnight.
+     * @return The packed selection.
+     */
+    public static long packSelection(int epochDay, int minuteOfDay) {
+        return ((long) epochDay << 32) | minuteOfDay;
+    }
+
+    /**
+     * Gets the date of a selection created with {@link #packSelection(int, int)}.
+     * @return The date as day number, see {@link EpochDay}.
+     */
+    public static int unpackEpochDay(long packedSelection) {
+        return (int) (packedSelection >> 32);
+    }
+
+    /**
+     * Gets the time of a selection created with {@link #packSelection(int, int)}.
+     * @return The time as the number of minutes since midnight.
+     */
+    public static int unpackMinuteOfDay(long packedSelection) {
+        return (int) packedSelection;
+    }
+
+    /**
+     * Gets the currently selected date and time packed into a single long, see {@link #packSelection(int, int)}.
+     * @return The packed selection, or {@link #NO_SELECTION} if there is none.
+     */
+    public long getPackedSelection() {
+        final int epochDay = getSelectedEpochDay();
+        final int minuteOfDay = getSelectedMinuteOfDay();
+        if(epochDay == EpochDay.NONE || minuteOfDay == -1)
+            return NO_SELECTION;
+        return packSelection(epochDay, minuteOfDay);
+    }
+
+    /**
+     * Shows the given selection and flags, like when this picker is reused for another row of a
+     * RecyclerView or ListView. Only what differs from the current state is changed, and no listeners
+     * are called as the selection has not been made by the user.
+     * @param packedSelection The selection to show, see {@link #packSelection(int, int)}, or
+     *                        {@link #NO_SELECTION} to select the next best date after today.
+     * @param modeOrFlags The flags to use, see {@link #setFlags(int)}.
+     */
+    public void bind(long packedSelection, int modeOrFlags) {
+        if(modeOrFlags != flags)
+            setFlags(modeOrFlags);
+        if(packedSelection == NO_SELECTION)
+            selectDefaultDate();
+        else if(packedSelection != getPackedSelection()) {
+            final int epochDay = unpackEpochDay(packedSelection);
+            final int minuteOfDay = unpackMinuteOfDay(packedSelection);
+            if(epochDay != getSelectedEpochDay())
+                dateSpinner.setSelectedDate(EpochDay.getYear(epochDay), EpochDay.getMonth(epochDay),
+                        EpochDay.getDayOfMonth(epochDay));
+            if(minuteOfDay != getSelectedMinuteOfDay())
+                timeSpinner.setSelectedTime(minuteOfDay / 60, minuteOfDay % 60);
+        }
+        shouldSelectDefault = false;
+        // drop the callbacks for our own changes, and don't report the bound selection as a new one
+        dateSpinner.cancelSelectionCallback();
+        timeSpinner.cancelSelectionCallback();
+        lastSelectedEpochDay = getSelectedEpochDay();
+        lastSelectedMinuteOfDay = getSelectedMinuteOfDay();
+    }
+
+    /**
+     * Detaches this picker from the row it has been bound to with {@link #bind(long, int)}, so that
+     * no pending listener callback is delivered for that row anymore.
+     */
+    public void unbind() {
+        dateSpinner.cancelSelectionCallback();
+        timeSpinner.cancelSelectionCallback();
+        lastSelectedEpochDay = EpochDay.NONE;
+        lastSelectedMinuteOfDay = -1;
+    }
+
     @Override
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         // An item has been selected in one of our child spinners, so get the selected Date and call the listeners
-        if(listener != null) {
-            // catch selecting same date twice
-            Calendar date = getSelectedDate();
-            if(date != null && !date.equals(lastSelectedDate)) {
-                listener.onDateSelected(date);
-                lastSelectedDate = date;
+        if(listener != null || dateTimeListener != null) {
+            // catch selecting same date twice, comparing only the primitive fields of our items
+            final Object date = dateSpinner.getSelectedItem();
+            final Object time = timeSpinner.getSelectedItem();
+            if(date instanceof DateItem && time instanceof TimeItem) {
+                final DateItem dateItem = (DateItem) date;
+                final TimeItem timeItem = (TimeItem) time;
+                final int epochDay = dateItem.getEpochDay();
+                final int minuteOfDay = timeItem.getMinuteOfDay();
+                if(epochDay != lastSelectedEpochDay || minuteOfDay != lastSelectedMinuteOfDay) {
+                    lastSelectedEpochDay = epochDay;
+                    lastSelectedMinuteOfDay = minuteOfDay;
+                    if(dateTimeListener != null)
+                        dateTimeListener.onDateTimeSelected(dateItem.getYear(), dateItem.getMonth(),
+                                dateItem.getDay(), timeItem.getHour(), timeItem.getMinute());
+                    // the Calendar is only created if someone actually wants it
+                    if(listener != null)
+                        listener.onDateSelected(getSelectedDate());
+                }
             }
         }
     }
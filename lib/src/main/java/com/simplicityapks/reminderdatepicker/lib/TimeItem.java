@@ -89,6 +89,14 @@ public class TimeItem implements TwinTextItem {
         return this.minute;
     }
 
+    /**
+     * Gets the time set for this TimeItem as the number of minutes since midnight.
+     * @return The minute of the day, as int.
+     */
+    public int getMinuteOfDay() {
+        return this.hour * 60 + this.minute;
+    }
+
     /**
      * Deeply compares this TimeItem to the specified Object. Returns true if obj is a TimeItem and
      * contains the same date (ignoring the label) or is a Calendar and contains the same hour and minute.
@@ -127,6 +135,11 @@ public class TimeItem implements TwinTextItem {
         return id;
     }
 
+    /**
+     * {@inheritDoc}
+     * Note that the adapter may disable the item in a spinner even if this returns true, see
+     * {@link PickerSpinnerAdapter#isEnabled(int)}.
+     */
     @Override
     public boolean isEnabled() {
         return enabled;
@@ -135,11 +148,30 @@ public class TimeItem implements TwinTextItem {
     /**
      * Enable or disable this spinner item.
      * @param enable true to enable, false to disable this item.
+     * @deprecated The spinners may replace their items (like when the day or format changes), so use
+     * {@link PickerSpinnerAdapter#setItemEnabled(int, boolean)} to disable an item in a spinner instead.
      */
+    @Deprecated
     public void setEnabled(boolean enable) {
         this.enabled = enable;
     }
 
+    /**
+     * Creates a copy of this item with other texts, keeping the time, id and enabled state.
+     */
+    TimeItem withTexts(String label, String timeString) {
+        final TimeItem item = new TimeItem(label, timeString, hour, minute, id);
+        item.enabled = enabled;
+        return item;
+    }
+
+    /**
+     * Creates a copy of this item, which can be enabled and disabled independently.
+     */
+    TimeItem copy() {
+        return withTexts(label, digitalTime);
+    }
+
     /**
      * The returned String may be passed to {@link #fromString(String)} to save and recreate this object easily.
      * @return The elements of this object separated by \n
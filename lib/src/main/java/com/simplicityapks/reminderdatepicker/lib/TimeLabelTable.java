@@ -0,0 +1,105 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.support.annotation.Nullable;
+
+import java.text.DateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * The labels of all 1440 minutes of a day in one time format, rendered once on a background thread
+ * and then shared by all TimeSpinners using an equal format in the same locale.
+ */
+final class TimeLabelTable {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    // every table holds 1440 strings, so only keep the ones for a few formats around
+    private static final int MAX_TABLES = 4;
+
+    private static final Map<Key, TimeLabelTable> tables =
+            new LinkedHashMap<Key, TimeLabelTable>(MAX_TABLES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, TimeLabelTable> eldest) {
+                    return size() > MAX_TABLES;
+                }
+            };
+
+    // null until the background thread has rendered all labels
+    private volatile String[] labels;
+
+    private TimeLabelTable() {
+    }
+
+    /**
+     * Gets the shared table for the given format and the default locale, starting to render it in
+     * the background if it doesn't exist yet.
+     * @param format The time format, it will not be modified.
+     * @return The table, which may not be ready yet.
+     */
+    static synchronized TimeLabelTable obtain(DateFormat format) {
+        final Key key = new Key(format, Locale.getDefault());
+        TimeLabelTable table = tables.get(key);
+        if(table == null) {
+            table = new TimeLabelTable();
+            tables.put(new Key((DateFormat) format.clone(), key.locale), table);
+            // the background thread needs its own copy as DateFormats are not thread safe
+            table.render((DateFormat) format.clone(), BackgroundExecutor.get());
+        }
+        return table;
+    }
+
+    private void render(final DateFormat format, Executor executor) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final String[] result = new String[MINUTES_PER_DAY];
+                final Calendar time = new GregorianCalendar(0, 0, 0);
+                for(int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++) {
+                    time.set(0, 0, 0, minuteOfDay / 60, minuteOfDay % 60);
+                    result[minuteOfDay] = format.format(time.getTime());
+                }
+                labels = result;
+            }
+        });
+    }
+
+    /**
+     * Gets the label for the given time, if the table has been rendered already.
+     * @param minuteOfDay The number of minutes since midnight.
+     * @return The label, or null if the table is not ready yet or the time is out of range.
+     */
+    @Nullable String get(int minuteOfDay) {
+        final String[] labels = this.labels;
+        if(labels == null || minuteOfDay < 0 || minuteOfDay >= MINUTES_PER_DAY)
+            return null;
+        return labels[minuteOfDay];
+    }
+
+    private static final class Key {
+        final DateFormat format;
+        final Locale locale;
+
+        Key(DateFormat format, Locale locale) {
+            this.format = format;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Key))
+                return false;
+            final Key key = (Key) obj;
+            return format.equals(key.format) && locale.equals(key.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * format.hashCode() + locale.hashCode();
+        }
+    }
+}
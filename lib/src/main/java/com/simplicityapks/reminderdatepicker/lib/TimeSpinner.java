@@ -1,7 +1,6 @@
 package com.simplicityapks.reminderdatepicker.lib;
 
 import android.content.Context;
-import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
@@ -13,12 +12,16 @@ import android.support.v4.app.FragmentManager;
 import android.text.format.DateFormat;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.widget.AdapterView;
 
 import com.sleepbot.datetimepicker.time.RadialPickerLayout;
 import com.sleepbot.datetimepicker.time.TimePickerDialog;
 
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
@@ -48,18 +51,25 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
     private OnTimeSelectedListener timeListener = null;
     private OnClickListener customTimePicker = null;
 
-    // The default time picker dialog to show when the custom one is null:
-    private TimePickerDialog timePickerDialog;
+    // The default time picker dialog to show when the custom one is null, created when first needed:
+    private TimePickerDialog timePickerDialog = null;
     private FragmentManager fragmentManager;
 
     private boolean showMoreTimeItems = false;
 
     // The time format used to convert Calendars into displayable Strings:
     private java.text.DateFormat timeFormat = null;
+    // All labels of the time format rendered in the background, only used if enabled:
+    private TimeLabelTable timeLabelTable = null;
 
     private int lastSelectedHour = -1;
     private int lastSelectedMinute = -1;
 
+    // Maps the minute of day of each time item to its position, rebuilt when the adapter items have changed:
+    private final SparseIntArray timePositions = new SparseIntArray();
+    private int timePositionsVersion = -1;
+    private PickerSpinnerAdapter timePositionsAdapter = null;
+
     /**
      * Construct a new TimeSpinner with the given context's theme.
      * @param context The Context the view is running in, through which it can access the current theme, resources, etc.
@@ -92,8 +102,6 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
             setOnTimeSelectedListener((OnTimeSelectedListener) context);
         setOnItemSelectedListener(this);
 
-        initTimePickerDialog(context);
-
         // get the FragmentManager:
         try{
             fragmentManager = ((FragmentActivity) context).getSupportFragmentManager();
@@ -102,26 +110,31 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
         }
 
         if(attrs != null) {
-            // get our flags from xml, if set:
+            // get our flags from xml, if set (inside a ReminderDatePicker they are set by the picker instead):
             TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.ReminderDatePicker);
-            int flags = a.getInt(R.styleable.ReminderDatePicker_flags, ReminderDatePicker.MODE_GOOGLE);
-            setFlags(flags);
+            if(a.hasValue(R.styleable.ReminderDatePicker_flags))
+                setFlags(a.getInt(R.styleable.ReminderDatePicker_flags, ReminderDatePicker.MODE_GOOGLE));
             a.recycle();
         }
     }
 
-    private void initTimePickerDialog(Context context) {
-        final Calendar calendar = Calendar.getInstance();
-        // create the dialog to show later:
-        timePickerDialog = TimePickerDialog.newInstance(
-                new TimePickerDialog.OnTimeSetListener() {
-                    @Override
-                    public void onTimeSet(RadialPickerLayout radialPickerLayout, int hour, int minute) {
-                        setSelectedTime(hour, minute);
-                    }
-                },
-                calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE),
-                is24HourFormat(getTimeFormat()), hasVibratePermission(context));
+    /**
+     * Gets the default time picker dialog, creating it with our current time format if this has not been done yet.
+     */
+    private TimePickerDialog obtainTimePickerDialog() {
+        if(timePickerDialog == null) {
+            final Calendar calendar = Calendar.getInstance();
+            timePickerDialog = TimePickerDialog.newInstance(
+                    new TimePickerDialog.OnTimeSetListener() {
+                        @Override
+                        public void onTimeSet(RadialPickerLayout radialPickerLayout, int hour, int minute) {
+                            setSelectedTime(hour, minute);
+                        }
+                    },
+                    calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE),
+                    is24HourFormat(getTimeFormat()), EnvironmentSnapshot.get(getContext()).hasVibratePermission());
+        }
+        return timePickerDialog;
     }
 
     private boolean is24HourFormat(java.text.DateFormat timeFormat) {
@@ -136,12 +149,6 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
         return !(pattern.contains("h") || pattern.contains("K"));
     }
 
-    private boolean hasVibratePermission(Context context) {
-        final String permission = "android.permission.VIBRATE";
-        final int res = context.checkCallingOrSelfPermission(permission);
-        return (res == PackageManager.PERMISSION_GRANTED);
-    }
-
     @Override
     public List<TwinTextItem> getSpinnerItems() {
         try {
@@ -155,6 +162,38 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
 
     @Override
     protected @Nullable TwinTextItem parseItemFromXmlTag(@NonNull XmlResourceParser parser) {
+        return parseTimeItem(getResources(), parser, getTimeFormat());
+    }
+
+    /**
+     * Creates and caches the items of TimeSpinners with the default time format and the given flags,
+     * see {@link ReminderDatePicker#warmUpCaches(Context, int)}. May be called from any thread.
+     */
+    static void warmUpCaches(Context context, int modeOrFlags) throws XmlPullParserException, IOException {
+        final Resources res = context.getResources();
+        // our own instance, as it is used on this thread only
+        final java.text.DateFormat timeFormat = java.text.DateFormat.getTimeInstance(java.text.DateFormat.SHORT);
+        obtainItemsFromXml(res, R.xml.time_items, timeFormat, new XmlItemParser() {
+            @Override
+            public TwinTextItem parseItemFromXmlTag(@NonNull XmlResourceParser parser) {
+                return parseTimeItem(res, parser, timeFormat);
+            }
+        });
+        // the texts of the items added by the flags are cached as well
+        if((modeOrFlags & ReminderDatePicker.FLAG_MORE_TIME) != 0) {
+            formatTime(timeFormat, 12, 0);
+            formatTime(timeFormat, 14, 0);
+            formatTime(timeFormat, 23, 0);
+        }
+    }
+
+    /**
+     * Parses a TimeItem from the current xml tag. Unlike {@link #parseItemFromXmlTag(XmlResourceParser)},
+     * this doesn't need a spinner, so it may be called from any thread.
+     * @param timeFormat The time format for the secondary texts, it may only be used by the calling thread.
+     */
+    static @Nullable TimeItem parseTimeItem(Resources res, @NonNull XmlResourceParser parser,
+                                           java.text.DateFormat timeFormat) {
         if(!parser.getName().equals(XML_TAG_TIMEITEM)) {
             Log.d("TimeSpinner", "Unknown xml tag name: " + parser.getName());
             return null;
@@ -198,15 +237,24 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
 
         // now construct the time item from the attributes
         if(textResource != NO_ID)
-            text = getResources().getString(textResource);
+            text = res.getString(textResource);
 
         // when no text is given, format the date to have at least something to show
+        final String time = formatTime(timeFormat, hour, minute);
         if(text == null || text.equals(""))
-            text = formatTime(hour, minute);
+            text = time;
+
+        return new TimeItem(text, time, hour, minute, id);
+    }
 
-        return new TimeItem(text, formatTime(hour, minute), hour, minute, id);
+    @Override
+    protected @Nullable Object getItemsFromXmlVariant() {
+        // the secondary text of each item is formatted using our time format
+        return getTimeFormat();
     }
 
+
+
     /**
      * Gets the currently selected time (that the Spinner is showing)
      * @return The selected time as Calendar, or null if there is none.
@@ -218,6 +266,17 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
         return ((TimeItem) selectedItem).getTime();
     }
 
+    /**
+     * Gets the currently selected time (that the Spinner is showing) without creating a Calendar.
+     * @return The selected time as the number of minutes since midnight, or -1 if there is none.
+     */
+    public int getSelectedMinuteOfDay() {
+        final Object selectedItem = getSelectedItem();
+        if(!(selectedItem instanceof TimeItem))
+            return -1;
+        return ((TimeItem) selectedItem).getMinuteOfDay();
+    }
+
     /**
      * Sets the Spinner's selection as time in hour and minute. If the time was not in the possible
      * selections, a temporary item is created and passed to selectTemporary().
@@ -225,15 +284,7 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
      * @param minute The minute in the hour.
      */
     public void setSelectedTime(int hour, int minute) {
-        final int count = getAdapter().getCount() - 1;
-        int itemPosition = -1;
-        for(int i=0; i<count; i++) {
-            final TimeItem item = ((TimeItem) getAdapter().getItem(i));
-            if(item.getHour() == hour && item.getMinute() == minute) {
-                itemPosition = i;
-                break;
-            }
-        }
+        final int itemPosition = getTimePosition(hour * 60 + minute);
         if(itemPosition >= 0)
             setSelection(itemPosition);
         else {
@@ -242,8 +293,81 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
         }
     }
 
+    /**
+     * Finds the position of the spinner item holding the given time (excluding any temporary selection).
+     * @param hour The hour of the day.
+     * @param minute The minute of the hour.
+     * @return The position of the first TimeItem with this time, or -1 if there is no such item.
+     */
+    public int getTimeItemPosition(int hour, int minute) {
+        return getTimePosition(hour * 60 + minute);
+    }
+
+    /**
+     * Looks up the given minute of day in our index, which is rebuilt first if the adapter items have changed.
+     */
+    int getTimePosition(int minuteOfDay) {
+        return obtainTimePositions().get(minuteOfDay, -1);
+    }
+
+    /**
+     * Finds the item with the earliest time equal to or later than the given one, using a binary
+     * search over the sorted keys of our index.
+     * @param minuteOfDay The minute of day to search.
+     * @return The position of the (first) item with that time, or -1 if all items are earlier.
+     */
+    int getNextTimePosition(int minuteOfDay) {
+        final SparseIntArray positions = obtainTimePositions();
+        int low = 0;
+        int high = positions.size();
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(positions.keyAt(mid) < minuteOfDay)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low < positions.size()? positions.valueAt(low) : -1;
+    }
+
+    private SparseIntArray obtainTimePositions() {
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        final int version = adapter.getModificationCount();
+        if(version != timePositionsVersion || adapter != timePositionsAdapter) {
+            timePositions.clear();
+            // the items are usually sorted, so most keys can be appended without moving the others
+            final int last = getLastItemPosition();
+            for(int position = 0; position <= last; position++) {
+                final int minuteOfDay = ((TimeItem) adapter.getItem(position)).getMinuteOfDay();
+                final int size = timePositions.size();
+                if(size == 0 || timePositions.keyAt(size - 1) < minuteOfDay)
+                    timePositions.append(minuteOfDay, position);
+                // the first item wins if there are multiple items with the same time
+                else if(timePositions.indexOfKey(minuteOfDay) < 0)
+                    timePositions.put(minuteOfDay, position);
+            }
+            timePositionsVersion = version;
+            timePositionsAdapter = adapter;
+        }
+        return timePositions;
+    }
+
     private String formatTime(int hour, int minute) {
-        return getTimeFormat().format(new GregorianCalendar(0,0,0,hour,minute).getTime());
+        final String label = timeLabelTable != null? timeLabelTable.get(hour * 60 + minute) : null;
+        return label != null? label : formatTime(getTimeFormat(), hour, minute);
+    }
+
+    /**
+     * Formats the given time using the label cache, the format may only be used by the calling thread.
+     */
+    static String formatTime(java.text.DateFormat format, int hour, int minute) {
+        final int minuteOfDay = hour * 60 + minute;
+        String label = LabelCache.get(LabelCache.KIND_TIME, format, minuteOfDay);
+        if(label == null) {
+            label = format.format(new GregorianCalendar(0,0,0,hour,minute).getTime());
+            LabelCache.put(LabelCache.KIND_TIME, format, minuteOfDay, label);
+        }
+        return label;
     }
 
     /**
@@ -262,33 +386,75 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
      * @param timeFormat The new time format (as java.text.DateFormat), or null to use the default format.
      */
     public void setTimeFormat(java.text.DateFormat timeFormat) {
+        // remember the labels in the old format first, so we know which texts are derived from it:
+        final PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
+        final int last = getLastItemPosition();
+        final TwinTextItem temporary = adapter.getTemporarySelection();
+        final String[] oldLabels = new String[last + 2];
+        for(int position = 0; position <= last; position++)
+            oldLabels[position] = formatTimeItem(adapter.getItem(position));
+        if(temporary != null)
+            oldLabels[last + 1] = formatTimeItem(temporary);
+
         this.timeFormat = timeFormat;
-        // update our pre-built timePickerDialog with the new timeFormat:
-        initTimePickerDialog(getContext());
-
-        // save the flags and selection first:
-        final PickerSpinnerAdapter adapter = ((PickerSpinnerAdapter)getAdapter());
-        final boolean moreTimeItems = isShowingMoreTimeItems();
-        final boolean numbersInView = adapter.isShowingSecondaryTextInView();
-        final Calendar selection = getSelectedTime();
-        // we need to restore differently if we have a temporary selection:
-        final boolean temporarySelected = getSelectedItemPosition() == adapter.getCount();
-
-        // to rebuild the spinner items, we need to recreate our adapter:
-        initAdapter(getContext());
-
-        // force restore flags and selection to the new Adapter:
-        setShowNumbersInView(numbersInView);
-        this.showMoreTimeItems = false;
-        if(temporarySelected) {
-            // for some reason these calls have to be exactly in this order!
-            setSelectedTime(selection.get(Calendar.HOUR_OF_DAY), selection.get(Calendar.MINUTE));
-            setShowMoreTimeItems(moreTimeItems);
-        } else {
-            // this way it works when a date from the array is selected (like the default)
-            setShowMoreTimeItems(moreTimeItems);
-            setSelectedTime(selection.get(Calendar.HOUR_OF_DAY), selection.get(Calendar.MINUTE));
+        if(timeLabelTable != null)
+            timeLabelTable = TimeLabelTable.obtain(getTimeFormat());
+        // the timePickerDialog needs to be recreated with the new timeFormat when it is shown next:
+        timePickerDialog = null;
+
+        // relabel the items in place, so the adapter and selection can stay as they are:
+        beginUpdate();
+        for(int position = 0; position <= last; position++) {
+            final TwinTextItem item = adapter.getItem(position);
+            if(item instanceof TimeItem)
+                replaceAdapterItemAt(position, relabel((TimeItem) item, oldLabels[position]));
         }
+        if(temporary instanceof TimeItem)
+            replaceTemporarySelection(relabel((TimeItem) temporary, oldLabels[last + 1]));
+        endUpdate();
+    }
+
+    private @Nullable String formatTimeItem(TwinTextItem item) {
+        if(!(item instanceof TimeItem))
+            return null;
+        final TimeItem time = (TimeItem) item;
+        return formatTime(time.getHour(), time.getMinute());
+    }
+
+    /**
+     * Creates a copy of the given item with its texts formatted in the current time format.
+     * @param item The item to relabel.
+     * @param oldLabel The item's time formatted in the previous time format.
+     */
+    private TimeItem relabel(TimeItem item, String oldLabel) {
+        final String label = formatTime(item.getHour(), item.getMinute());
+        final CharSequence primary = item.getPrimaryText();
+        final CharSequence secondary = item.getSecondaryText();
+        // items without their own text show the formatted time as primary text
+        final String newPrimary = primary == null || primary.toString().equals(oldLabel)?
+                label : primary.toString();
+        // custom secondary texts like a place stay as they are, just like custom primary texts
+        final String newSecondary = secondary == null? null
+                : secondary.toString().equals(oldLabel)? label : secondary.toString();
+        return item.withTexts(newPrimary, newSecondary);
+    }
+
+    /**
+     * Toggles rendering the labels of all times of day once on a background thread. The labels are
+     * shared with all other TimeSpinners using an equal time format, so this is useful when there are
+     * many pickers or the time format is changed often. Until the labels are ready, times are formatted as usual.
+     * @param enable True to render all labels in advance, false to only format the shown times.
+     */
+    public void setPrecomputeTimeLabels(boolean enable) {
+        timeLabelTable = enable? TimeLabelTable.obtain(getTimeFormat()) : null;
+    }
+
+    /**
+     * Gets whether the labels of all times of day are rendered in advance.
+     * @return True if {@link #setPrecomputeTimeLabels(boolean)} has been enabled, false otherwise.
+     */
+    public boolean isPrecomputingTimeLabels() {
+        return timeLabelTable != null;
     }
 
     /**
@@ -305,7 +471,7 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
     public @Nullable TimePickerDialog getTimePickerDialog() {
         if(customTimePicker != null)
             return null;
-        return timePickerDialog;
+        return obtainTimePickerDialog();
     }
 
     /**
@@ -331,37 +497,45 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
      * @param enable True to enable, false to disable more time items.
      */
     public void setShowMoreTimeItems(boolean enable) {
-        if(enable && !showMoreTimeItems) {
-            // create the noon and late night item:
-            final Resources res = getResources();
+        if(enable == showMoreTimeItems)
+            return;
+        final Resources res = getResources();
+        final List<TwinTextItem> items = getAdapterItems();
+        if(enable) {
             // switch the afternoon item to 2pm:
-            insertAdapterItem(new TimeItem(res.getString(R.string.time_afternoon_2), formatTime(14, 0), 14, 0, R.id.time_afternoon_2), 2);
-            removeAdapterItemById(R.id.time_afternoon);
+            items.add(Math.min(2, items.size()), new TimeItem(res.getString(R.string.time_afternoon_2), formatTime(14, 0), 14, 0, R.id.time_afternoon_2));
+            removeItemsById(items, R.id.time_afternoon);
             // noon item:
-            insertAdapterItem(new TimeItem(res.getString(R.string.time_noon), formatTime(12, 0), 12, 0, R.id.time_noon), 1);
+            items.add(Math.min(1, items.size()), new TimeItem(res.getString(R.string.time_noon), formatTime(12, 0), 12, 0, R.id.time_noon));
             // late night item:
-            addAdapterItem(new TimeItem(res.getString(R.string.time_late_night), formatTime(23, 0), 23, 0, R.id.time_late_night));
+            items.add(new TimeItem(res.getString(R.string.time_late_night), formatTime(23, 0), 23, 0, R.id.time_late_night));
         }
-        else if(!enable && showMoreTimeItems) {
+        else {
             // switch back the afternoon item:
-            insertAdapterItem(new TimeItem(getResources().getString(R.string.time_afternoon), formatTime(13, 0), 13, 0, R.id.time_afternoon), 3);
-            removeAdapterItemById(R.id.time_afternoon_2);
-            removeAdapterItemById(R.id.time_noon);
-            removeAdapterItemById(R.id.time_late_night);
+            items.add(Math.min(3, items.size()), new TimeItem(res.getString(R.string.time_afternoon), formatTime(13, 0), 13, 0, R.id.time_afternoon));
+            removeItemsById(items, R.id.time_afternoon_2);
+            removeItemsById(items, R.id.time_noon);
+            removeItemsById(items, R.id.time_late_night);
         }
+        // apply all four changes at once:
+        applyItemDiff(items);
         showMoreTimeItems = enable;
     }
 
+    private static void removeItemsById(List<TwinTextItem> items, int id) {
+        for(int i = items.size()-1; i >= 0; i--) {
+            if(items.get(i).getId() == id)
+                items.remove(i);
+        }
+    }
+
     /**
      * Toggles showing numeric time in the view. Note that time will always be shown in dropdown.
      * @param enable True to enable, false to disable numeric mode.
      */
     public void setShowNumbersInView(boolean enable) {
-        PickerSpinnerAdapter adapter = (PickerSpinnerAdapter) getAdapter();
-        // workaround for now.
-        if(enable != adapter.isShowingSecondaryTextInView() && adapter.getCount() == getSelectedItemPosition())
-            setSelection(0);
-        adapter.setShowSecondaryTextInView(enable);
+        // a temporary selection is kept, PickerSpinner reselects it after the data set change
+        ((PickerSpinnerAdapter) getAdapter()).setShowSecondaryTextInView(enable);
     }
 
     /**
@@ -370,20 +544,22 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
      *                    combined with the | operator.
      */
     public void setFlags(int modeOrFlags) {
+        // apply all item changes at once:
+        beginUpdate();
         setShowMoreTimeItems((modeOrFlags & ReminderDatePicker.FLAG_MORE_TIME) != 0);
         setShowNumbersInView((modeOrFlags & ReminderDatePicker.FLAG_NUMBERS) != 0);
+        endUpdate();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void removeAdapterItemAt(int index) {
-        if(index == getSelectedItemPosition()) {
-            Calendar time = getSelectedTime();
-            selectTemporary(new TimeItem(formatTime(time.get(Calendar.HOUR_OF_DAY), time.get(Calendar.MINUTE)), time, NO_ID));
-        }
-        super.removeAdapterItemAt(index);
+    protected @Nullable TwinTextItem createTemporaryReplacement(TwinTextItem removedItem) {
+        if(!(removedItem instanceof TimeItem))
+            return null;
+        final TimeItem time = (TimeItem) removedItem;
+        return new TimeItem(formatTime(time.getHour(), time.getMinute()), time.getHour(), time.getMinute(), NO_ID);
     }
 
     @Override
@@ -395,9 +571,10 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
     public void onFooterClick() {
         if (customTimePicker == null) {
             // update the selected time in the dialog
-            final Calendar time = getSelectedTime();
-            timePickerDialog.setStartTime(time.get(Calendar.HOUR_OF_DAY), time.get(Calendar.MINUTE));
-            timePickerDialog.show(fragmentManager, "TimePickerDialog");
+            final TimePickerDialog dialog = obtainTimePickerDialog();
+            final TimeItem time = (TimeItem) getSelectedItem();
+            dialog.setStartTime(time.getHour(), time.getMinute());
+            dialog.show(fragmentManager, "TimePickerDialog");
         } else {
             customTimePicker.onClick(this);
         }
@@ -408,6 +585,19 @@ public class TimeSpinner extends PickerSpinner implements AdapterView.OnItemSele
         selectTemporary(TimeItem.fromString(codeString));
     }
 
+    @Override
+    protected int getTemporarySelectionValue(TwinTextItem item) {
+        return item instanceof TimeItem? ((TimeItem) item).getMinuteOfDay() : NO_TEMPORARY_VALUE;
+    }
+
+    @Override
+    protected void restoreTemporarySelection(int minuteOfDay) {
+        // the text depends on the time format, so create it again
+        final int hour = minuteOfDay / 60;
+        final int minute = minuteOfDay % 60;
+        selectTemporary(new TimeItem(formatTime(hour, minute), hour, minute, NO_ID));
+    }
+
     @Override
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         if(timeListener != null) {
@@ -0,0 +1,92 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.XmlRes;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Process wide cache of the items parsed from xml resources by {@link PickerSpinner#getItemsFromXml(int)},
+ * so that spinners created later don't need to parse the xml and format the dates again.
+ * Entries are only valid for the locale and day they have been parsed in, as item texts depend on both.
+ */
+final class XmlItemCache {
+
+    // we only expect a few different item resources and formats, so keep the cache small
+    private static final int MAX_ENTRIES = 8;
+
+    private static final Map<Key, List<TwinTextItem>> cache =
+            new LinkedHashMap<Key, List<TwinTextItem>>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, List<TwinTextItem>> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    private XmlItemCache() {
+        // no instances
+    }
+
+    /**
+     * Gets the previously parsed items for the given key.
+     * @return An unmodifiable list of the cached items, or null if there are none.
+     */
+    static synchronized @Nullable List<TwinTextItem> get(Key key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Saves the parsed items for the given key, replacing any previous ones.
+     */
+    static synchronized void put(Key key, List<TwinTextItem> items) {
+        cache.put(key, Collections.unmodifiableList(items));
+    }
+
+    /**
+     * Removes all cached items, needs to be called when the resources may have changed.
+     */
+    static synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Identifies a list of parsed items. The variant can be any object the item texts depend on
+     * (like a custom DateFormat) and needs to implement equals() and hashCode().
+     */
+    static final class Key {
+        @XmlRes final int xmlResource;
+        final Locale locale;
+        final int epochDay;
+        final Object variant;
+
+        Key(@XmlRes int xmlResource, Locale locale, int epochDay, @Nullable Object variant) {
+            this.xmlResource = xmlResource;
+            this.locale = locale;
+            this.epochDay = epochDay;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Key))
+                return false;
+            final Key key = (Key) obj;
+            return xmlResource == key.xmlResource && epochDay == key.epochDay
+                    && (locale == null? key.locale == null : locale.equals(key.locale))
+                    && (variant == null? key.variant == null : variant.equals(key.variant));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = xmlResource;
+            result = 31 * result + epochDay;
+            result = 31 * result + (locale == null? 0 : locale.hashCode());
+            result = 31 * result + (variant == null? 0 : variant.hashCode());
+            return result;
+        }
+    }
+}
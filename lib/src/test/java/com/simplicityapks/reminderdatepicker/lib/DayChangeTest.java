@@ -0,0 +1,90 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.widget.FrameLayout;
+
+import com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.CountingListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.TimeZone;
+
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.createContainer;
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.settle;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks what a DateSpinner does at midnight. The day is moved forward by switching the default
+ * time zone from UTC-12 to UTC+12, which is the same time on the next day.
+ * The default date items are today, tomorrow and next week, and the minimum date is today.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class DayChangeTest {
+
+    private TimeZone defaultZone;
+    private DateSpinner spinner;
+    private CountingListener listener;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Etc/GMT+12"));
+        final FrameLayout container = createContainer();
+        spinner = new DateSpinner(container.getContext());
+        container.addView(spinner);
+        settle(spinner);
+        listener = new CountingListener();
+        spinner.setOnItemSelectedListener(listener);
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    private int passMidnight() {
+        final int yesterday = EpochDay.today();
+        TimeZone.setDefault(TimeZone.getTimeZone("Etc/GMT-12"));
+        assertEquals(yesterday + 1, EpochDay.today());
+        spinner.onDayChanged();
+        settle(spinner);
+        return yesterday;
+    }
+
+    @Test
+    public void todayBelowTheMinimumDateMovesToTheNewToday() {
+        // today is already selected initially
+        spinner.setSelection(0);
+        settle(spinner);
+        assertEquals(0, listener.selectedCount);
+
+        final int yesterday = passMidnight();
+        assertEquals(yesterday + 1, spinner.getSelectedEpochDay());
+        assertEquals(0, spinner.getSelectedItemPosition());
+        assertEquals(1, listener.selectedCount);
+    }
+
+    @Test
+    public void keptDateIsNotReported() {
+        spinner.setSelection(2);
+        settle(spinner);
+        assertEquals(1, listener.selectedCount);
+
+        final int yesterday = passMidnight();
+        // next week of yesterday is still the selected date, even though it is not "next week" anymore
+        assertEquals(yesterday + 7, spinner.getSelectedEpochDay());
+        assertEquals(1, listener.selectedCount);
+    }
+
+    @Test
+    public void pendingSelectionIsStillReported() {
+        spinner.setSelection(2);
+        passMidnight();
+        assertEquals(1, listener.selectedCount);
+    }
+}
@@ -0,0 +1,133 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks all EpochDay conversions against a proleptic GregorianCalendar.
+ */
+public class EpochDayTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    // with daylight saving time, with half hour offsets (and both), and without any switches
+    private static final TimeZone[] ZONES = {
+            UTC,
+            TimeZone.getTimeZone("Europe/Berlin"),
+            TimeZone.getTimeZone("America/New_York"),
+            TimeZone.getTimeZone("America/St_Johns"),
+            TimeZone.getTimeZone("Australia/Adelaide"),
+            TimeZone.getTimeZone("Asia/Kolkata"),
+            TimeZone.getTimeZone("Asia/Kathmandu"),
+            TimeZone.getTimeZone("Pacific/Chatham"),
+            TimeZone.getTimeZone("Pacific/Kiritimati"),
+            TimeZone.getTimeZone("Etc/GMT+12")
+    };
+
+    // the first day of year 1, earlier years need the era in a Calendar
+    private static final int FIRST_DAY_OF_YEAR_ONE = -719162;
+
+    private static GregorianCalendar newCalendar(TimeZone zone) {
+        final GregorianCalendar calendar = new GregorianCalendar(zone);
+        // use the Gregorian rules for all dates, like EpochDay does
+        calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+        calendar.clear();
+        return calendar;
+    }
+
+    private static void assertDate(int epochDay, Calendar calendar) {
+        final String message = "epoch day " + epochDay;
+        assertEquals(message, calendar.get(Calendar.YEAR), EpochDay.getYear(epochDay));
+        assertEquals(message, calendar.get(Calendar.MONTH), EpochDay.getMonth(epochDay));
+        assertEquals(message, calendar.get(Calendar.DAY_OF_MONTH), EpochDay.getDayOfMonth(epochDay));
+        assertEquals(message, epochDay, EpochDay.of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
+                calendar.get(Calendar.DAY_OF_MONTH)));
+    }
+
+    @Test
+    public void everyDayAroundTheEpoch() {
+        final GregorianCalendar calendar = newCalendar(UTC);
+        // covers several leap years before and after 1970, including 1900 and 2000
+        for(int epochDay = -40000; epochDay <= 40000; epochDay++) {
+            calendar.setTimeInMillis(epochDay * EpochDay.MILLIS_PER_DAY);
+            assertDate(epochDay, calendar);
+        }
+    }
+
+    @Test
+    public void distantDays() {
+        final GregorianCalendar calendar = newCalendar(UTC);
+        for(int epochDay = FIRST_DAY_OF_YEAR_ONE; epochDay <= 3000000; epochDay += 97) {
+            calendar.setTimeInMillis(epochDay * EpochDay.MILLIS_PER_DAY);
+            assertDate(epochDay, calendar);
+        }
+    }
+
+    @Test
+    public void firstAndLastDays() {
+        assertEquals(0, EpochDay.of(1970, Calendar.JANUARY, 1));
+        assertEquals(-1, EpochDay.of(1969, Calendar.DECEMBER, 31));
+        assertEquals(FIRST_DAY_OF_YEAR_ONE, EpochDay.of(1, Calendar.JANUARY, 1));
+        assertEquals(11016, EpochDay.of(2000, Calendar.FEBRUARY, 29));
+        assertEquals(Calendar.FEBRUARY, EpochDay.getMonth(11016));
+        assertEquals(29, EpochDay.getDayOfMonth(11016));
+    }
+
+    @Test
+    public void ofMillisAndMinuteOfDay() {
+        for(TimeZone zone : ZONES) {
+            final GregorianCalendar calendar = newCalendar(zone);
+            // a step which is not a multiple of an hour hits all minutes, including daylight saving switches
+            for(long millis = -3000000000000L; millis <= 3000000000000L; millis += 7919 * EpochDay.MILLIS_PER_MINUTE + 13) {
+                calendar.setTimeInMillis(millis);
+                final String message = zone.getID() + " at " + millis;
+                final int epochDay = EpochDay.ofMillis(millis, zone);
+                assertEquals(message, EpochDay.of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
+                        calendar.get(Calendar.DAY_OF_MONTH)), epochDay);
+                assertEquals(message, epochDay, EpochDay.of(calendar));
+                assertEquals(message, calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE),
+                        EpochDay.getMinuteOfDay(millis, zone));
+            }
+        }
+    }
+
+    @Test
+    public void toMillisAroundDaylightSavingSwitches() {
+        for(TimeZone zone : ZONES) {
+            final GregorianCalendar calendar = newCalendar(zone);
+            for(int year = 1960; year <= 2030; year += 7) {
+                // every quarter hour of the year, so both switches (and the skipped hour) are included
+                final int firstDay = EpochDay.of(year, Calendar.JANUARY, 1);
+                final int lastDay = EpochDay.of(year, Calendar.DECEMBER, 31);
+                for(int epochDay = firstDay; epochDay <= lastDay; epochDay++) {
+                    for(int minuteOfDay = 0; minuteOfDay < 24 * 60; minuteOfDay += 15) {
+                        calendar.clear();
+                        calendar.set(EpochDay.getYear(epochDay), EpochDay.getMonth(epochDay),
+                                EpochDay.getDayOfMonth(epochDay), minuteOfDay / 60, minuteOfDay % 60);
+                        assertEquals(zone.getID() + " on " + epochDay + " at " + minuteOfDay,
+                                calendar.getTimeInMillis(), EpochDay.toMillis(epochDay, minuteOfDay, zone));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void toMillisRoundTrip() {
+        for(TimeZone zone : ZONES) {
+            for(long millis = -3000000000000L; millis <= 3000000000000L; millis += 104729 * EpochDay.MILLIS_PER_MINUTE) {
+                final int epochDay = EpochDay.ofMillis(millis, zone);
+                final int minuteOfDay = EpochDay.getMinuteOfDay(millis, zone);
+                final long back = EpochDay.toMillis(epochDay, minuteOfDay, zone);
+                assertEquals(zone.getID() + " at " + millis, epochDay, EpochDay.ofMillis(back, zone));
+                assertEquals(zone.getID() + " at " + millis, minuteOfDay, EpochDay.getMinuteOfDay(back, zone));
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.createContainer;
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.settle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that disabling an item through its deprecated setEnabled() only affects a single spinner,
+ * even though the parsed xml items are cached for all of them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+@SuppressWarnings("deprecation")
+public class ItemEnabledTest {
+
+    private FrameLayout container;
+
+    @Before
+    public void setUp() {
+        container = createContainer();
+    }
+
+    private <T extends PickerSpinner> T attach(T spinner) {
+        container.addView(spinner);
+        settle(spinner);
+        return spinner;
+    }
+
+    @Test
+    public void disabledItemIsNotShared() {
+        final TimeSpinner first = attach(new TimeSpinner(container.getContext()));
+        final TimeSpinner second = attach(new TimeSpinner(container.getContext()));
+        final TwinTextItem firstItem = first.getAdapterItemById(R.id.time_evening);
+        final TwinTextItem secondItem = second.getAdapterItemById(R.id.time_evening);
+        assertNotSame(firstItem, secondItem);
+
+        ((TimeItem) firstItem).setEnabled(false);
+        final int position = first.getAdapterItemPosition(R.id.time_evening);
+        assertFalse(((PickerSpinnerAdapter) first.getAdapter()).isEnabled(position));
+        assertTrue(secondItem.isEnabled());
+        assertTrue(((PickerSpinnerAdapter) second.getAdapter()).isEnabled(position));
+
+        // spinners created later don't see it either
+        final TimeSpinner third = attach(new TimeSpinner(container.getContext()));
+        assertTrue(third.getAdapterItemById(R.id.time_evening).isEnabled());
+    }
+
+    @Test
+    public void disabledDateStaysDisabledAfterFormatChange() {
+        final DateSpinner spinner = attach(new DateSpinner(container.getContext()));
+        // the format only changes the item texts without a custom text
+        spinner.setFlags(ReminderDatePicker.FLAG_MONTH);
+        ((DateItem) spinner.getAdapterItemById(R.id.date_month)).setEnabled(false);
+
+        spinner.setDateFormat(new SimpleDateFormat("yyyy-MM-dd", Locale.US));
+        final int position = spinner.getAdapterItemPosition(R.id.date_month);
+        assertTrue(spinner.getAdapterItemById(R.id.date_month).getPrimaryText().toString()
+                .matches("\\d{4}-\\d{2}-\\d{2}"));
+        assertFalse(spinner.getAdapterItemById(R.id.date_month).isEnabled());
+        assertFalse(((PickerSpinnerAdapter) spinner.getAdapter()).isEnabled(position));
+    }
+
+    @Test
+    public void disabledTimeStaysDisabledAfterFormatChange() {
+        final TimeSpinner spinner = attach(new TimeSpinner(container.getContext()));
+        ((TimeItem) spinner.getAdapterItemById(R.id.time_evening)).setEnabled(false);
+
+        spinner.setTimeFormat(new SimpleDateFormat("HH.mm", Locale.US));
+        final int position = spinner.getAdapterItemPosition(R.id.time_evening);
+        assertEquals("17.00", spinner.getAdapterItemById(R.id.time_evening).getSecondaryText().toString());
+        assertFalse(spinner.getAdapterItemById(R.id.time_evening).isEnabled());
+        assertFalse(((PickerSpinnerAdapter) spinner.getAdapter()).isEnabled(position));
+    }
+}
@@ -0,0 +1,76 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Calendar;
+
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.createContainer;
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.settle;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the date and time indexes of the spinners, also for unsorted items and items sharing a value.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class ItemPositionTest {
+
+    private FrameLayout container;
+
+    @Before
+    public void setUp() {
+        container = createContainer();
+    }
+
+    private <T extends PickerSpinner> T attach(T spinner) {
+        container.addView(spinner);
+        settle(spinner);
+        return spinner;
+    }
+
+    @Test
+    public void datePositions() {
+        // today, tomorrow and next week
+        final DateSpinner spinner = attach(new DateSpinner(container.getContext()));
+        final int today = EpochDay.today();
+        final Calendar tomorrow = Calendar.getInstance();
+        tomorrow.add(Calendar.DAY_OF_MONTH, 1);
+        final Calendar lastMonth = Calendar.getInstance();
+        lastMonth.add(Calendar.MONTH, -1);
+        spinner.addAdapterItem(new DateItem("Tomorrow again", tomorrow, View.NO_ID));
+        spinner.addAdapterItem(new DateItem("Last month", lastMonth, View.NO_ID));
+
+        assertEquals(0, spinner.getDatePosition(today));
+        assertEquals(1, spinner.getDatePosition(today + 1));
+        assertEquals(2, spinner.getDatePosition(today + 7));
+        assertEquals(4, spinner.getDatePosition(EpochDay.of(lastMonth)));
+        assertEquals(-1, spinner.getDatePosition(today + 2));
+        assertEquals(2, spinner.getNextDatePosition(today + 2));
+        assertEquals(4, spinner.getNextDatePosition(EpochDay.of(lastMonth) - 1));
+        assertEquals(-1, spinner.getNextDatePosition(today + 8));
+    }
+
+    @Test
+    public void timePositions() {
+        // 9:00, 13:00, 17:00 and 20:00
+        final TimeSpinner spinner = attach(new TimeSpinner(container.getContext()));
+        spinner.addAdapterItem(new TimeItem("Lunch", 13, 0, View.NO_ID));
+        spinner.addAdapterItem(new TimeItem("Breakfast", 8, 0, View.NO_ID));
+
+        assertEquals(0, spinner.getTimeItemPosition(9, 0));
+        assertEquals(1, spinner.getTimeItemPosition(13, 0));
+        assertEquals(3, spinner.getTimeItemPosition(20, 0));
+        assertEquals(5, spinner.getTimeItemPosition(8, 0));
+        assertEquals(-1, spinner.getTimeItemPosition(12, 0));
+        assertEquals(1, spinner.getNextTimePosition(12 * 60));
+        assertEquals(5, spinner.getNextTimePosition(7 * 60));
+        assertEquals(-1, spinner.getNextTimePosition(21 * 60));
+    }
+}
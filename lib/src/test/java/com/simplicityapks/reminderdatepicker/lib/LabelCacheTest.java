@@ -0,0 +1,78 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.content.Intent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that the LabelCache keeps one copy per distinct format and only looks up the time zone
+ * again after the system announced a change.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class LabelCacheTest {
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+        LabelCache.watchTimeZone(RuntimeEnvironment.application);
+        LabelCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+        LabelCache.clear();
+    }
+
+    @Test
+    public void labelsShareTheirFormatCopy() {
+        for(int minute = 0; minute < 100; minute++) {
+            // a new but equal format for every label, like every spinner has its own
+            LabelCache.put(LabelCache.KIND_TIME, new SimpleDateFormat("HH:mm"), minute, "label" + minute);
+        }
+        LabelCache.put(LabelCache.KIND_TIME, new SimpleDateFormat("h:mm a"), 0, "other");
+        assertEquals(2, LabelCache.getFormatCount());
+        assertEquals("label42", LabelCache.get(LabelCache.KIND_TIME, new SimpleDateFormat("HH:mm"), 42));
+        assertEquals("other", LabelCache.get(LabelCache.KIND_TIME, new SimpleDateFormat("h:mm a"), 0));
+    }
+
+    @Test
+    public void changingTheFormatAfterwardsDoesNotChangeTheKey() {
+        final SimpleDateFormat format = new SimpleDateFormat("HH:mm");
+        LabelCache.put(LabelCache.KIND_TIME, format, 60, "01:00");
+        format.applyPattern("h:mm a");
+        assertNull(LabelCache.get(LabelCache.KIND_TIME, format, 60));
+        assertEquals("01:00", LabelCache.get(LabelCache.KIND_TIME, new SimpleDateFormat("HH:mm"), 60));
+    }
+
+    @Test
+    public void labelsAreDroppedWhenTheTimeZoneChanges() {
+        LabelCache.put(LabelCache.KIND_TIME, null, 60, "01:00");
+        assertEquals("01:00", LabelCache.get(LabelCache.KIND_TIME, null, 60));
+
+        // without the broadcast the zone is not looked up again
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        assertEquals("01:00", LabelCache.get(LabelCache.KIND_TIME, null, 60));
+
+        RuntimeEnvironment.application.sendBroadcast(new Intent(Intent.ACTION_TIMEZONE_CHANGED));
+        ShadowLooper.idleMainLooper();
+        assertNull(LabelCache.get(LabelCache.KIND_TIME, null, 60));
+    }
+}
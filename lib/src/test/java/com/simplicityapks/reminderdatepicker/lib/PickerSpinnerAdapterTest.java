@@ -0,0 +1,98 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the id index of the PickerSpinnerAdapter is kept in sync with its items.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class PickerSpinnerAdapterTest {
+
+    // a few ids, so that some items share them
+    private static final int IDS = 6;
+
+    private PickerSpinnerAdapter adapter;
+    private int modificationCount;
+
+    @Before
+    public void setUp() {
+        final ArrayList<TwinTextItem> items = new ArrayList<>();
+        for(int i = 0; i < 4; i++)
+            items.add(item(i));
+        adapter = new PickerSpinnerAdapter(RuntimeEnvironment.application, items, item(IDS - 1));
+    }
+
+    private static TwinTextItem item(int id) {
+        return new TwinTextItem.Simple("Item " + id, null, id);
+    }
+
+    private void assertIndex(String message) {
+        for(int id = 0; id < IDS; id++) {
+            int expected = -1;
+            for(int position = 0; position < adapter.getCount(); position++) {
+                if(adapter.getItem(position).getId() == id)
+                    expected = position;
+            }
+            assertEquals(message + ", id " + id, expected, adapter.getItemPosition(id));
+        }
+        // every change is counted, so spinners know when to update their own indexes
+        assertEquals(message, true, adapter.getModificationCount() > modificationCount);
+        modificationCount = adapter.getModificationCount();
+    }
+
+    @Test
+    public void singleChangesKeepTheIndex() {
+        final Random random = new Random(42);
+        modificationCount = -1;
+        assertIndex("initially");
+        for(int step = 0; step < 2000; step++) {
+            final int items = adapter.getCount() - (adapter.hasFooter()? 1 : 0);
+            final int id = random.nextInt(IDS);
+            final String message;
+            switch(random.nextInt(items > 8? 6 : 4)) {
+                case 0:
+                    final int index = random.nextInt(items + 1);
+                    adapter.insert(item(id), index);
+                    message = "insert " + id + " at " + index;
+                    break;
+                case 1:
+                    adapter.add(item(id));
+                    message = "add " + id;
+                    break;
+                case 2:
+                    if(items == 0)
+                        continue;
+                    final int position = random.nextInt(items);
+                    adapter.set(position, item(id));
+                    message = "set " + id + " at " + position;
+                    break;
+                case 3:
+                    final boolean footer = random.nextBoolean();
+                    adapter.setFooter(footer? item(id) : null);
+                    message = "footer " + (footer? id : "none");
+                    break;
+                case 4:
+                    final int removed = random.nextInt(items);
+                    adapter.removeAt(removed);
+                    message = "remove at " + removed;
+                    break;
+                default:
+                    adapter.remove(adapter.getItem(random.nextInt(items)));
+                    message = "remove";
+                    break;
+            }
+            assertIndex("step " + step + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.os.Parcelable;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.Spinner;
+
+import com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.CountingListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.createContainer;
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.settle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that the selection of a PickerSpinner survives rotation, visibility toggles and item
+ * changes, and that the listener is called exactly once for every selection change.
+ * The default time items are 9:00, 13:00, 17:00 and 20:00.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class PickerSpinnerSelectionTest {
+
+    private FrameLayout container;
+    private TimeSpinner spinner;
+    private CountingListener listener;
+
+    @Before
+    public void setUp() {
+        container = createContainer();
+        spinner = new TimeSpinner(container.getContext());
+        container.addView(spinner);
+        settle(spinner);
+        listener = new CountingListener();
+        spinner.setOnItemSelectedListener(listener);
+    }
+
+    private int getTemporaryPosition() {
+        return spinner.getAdapter().getCount();
+    }
+
+    @Test
+    public void listenerIsPassedToTheSystem() {
+        assertNotNull(spinner.getOnItemSelectedListener());
+    }
+
+    @Test
+    public void severalSelectionsAreReportedOnce() {
+        spinner.setSelection(1);
+        spinner.setSelection(2);
+        settle(spinner);
+        assertEquals(1, listener.selectedCount);
+        assertEquals(2, listener.lastPosition);
+    }
+
+    @Test
+    public void selectingTheSameItemAgainIsNotReported() {
+        spinner.setSelection(2);
+        settle(spinner);
+        spinner.setSelection(2);
+        settle(spinner);
+        assertEquals(1, listener.selectedCount);
+    }
+
+    @Test
+    public void newTemporaryItemAtTheSamePositionIsReported() {
+        spinner.setSelectedTime(10, 30);
+        settle(spinner);
+        spinner.setSelectedTime(11, 45);
+        settle(spinner);
+        assertEquals(2, listener.selectedCount);
+        assertEquals(11 * 60 + 45, spinner.getSelectedMinuteOfDay());
+        assertEquals(getTemporaryPosition(), spinner.getSelectedItemPosition());
+    }
+
+    @Test
+    public void visibilityToggleKeepsTheTemporarySelection() {
+        spinner.setSelectedTime(10, 30);
+        settle(spinner);
+        spinner.setVisibility(View.GONE);
+        // changing the items while gone used to make the system reset the selection
+        spinner.setFlags(ReminderDatePicker.FLAG_MORE_TIME);
+        settle(spinner);
+        spinner.setVisibility(View.VISIBLE);
+        settle(spinner);
+        assertEquals(10 * 60 + 30, spinner.getSelectedMinuteOfDay());
+        assertEquals(getTemporaryPosition(), spinner.getSelectedItemPosition());
+        assertEquals(1, listener.selectedCount);
+    }
+
+    @Test
+    public void moreTimeFlagKeepsTheSelectedItem() {
+        spinner.setSelectedTime(17, 0);
+        settle(spinner);
+        // adds noon before it
+        spinner.setFlags(ReminderDatePicker.FLAG_MORE_TIME);
+        settle(spinner);
+        assertEquals(17 * 60, spinner.getSelectedMinuteOfDay());
+        assertEquals(3, spinner.getSelectedItemPosition());
+        spinner.setFlags(ReminderDatePicker.MODE_GOOGLE);
+        settle(spinner);
+        assertEquals(17 * 60, spinner.getSelectedMinuteOfDay());
+        assertEquals(2, spinner.getSelectedItemPosition());
+        // the item didn't change, only its position
+        assertEquals(1, listener.selectedCount);
+    }
+
+    @Test
+    public void moreTimeFlagTurnsTheTemporaryItemIntoARealOne() {
+        spinner.setSelectedTime(14, 0);
+        settle(spinner);
+        // adds a 14:00 item
+        spinner.setFlags(ReminderDatePicker.FLAG_MORE_TIME);
+        settle(spinner);
+        assertEquals(14 * 60, spinner.getSelectedMinuteOfDay());
+        assertEquals(2, spinner.getSelectedItemPosition());
+        assertNull(((PickerSpinnerAdapter) spinner.getAdapter()).getTemporarySelection());
+        assertEquals(1, listener.selectedCount);
+    }
+
+    @Test
+    public void insertingAndRemovingAboveTheSelectionIsNotReported() {
+        spinner.setSelectedTime(17, 0);
+        settle(spinner);
+        spinner.insertAdapterItem(new TimeItem("Early", 7, 0, View.NO_ID), 0);
+        settle(spinner);
+        assertEquals(17 * 60, spinner.getSelectedMinuteOfDay());
+        assertEquals(3, spinner.getSelectedItemPosition());
+        spinner.removeAdapterItemAt(0);
+        settle(spinner);
+        assertEquals(17 * 60, spinner.getSelectedMinuteOfDay());
+        assertEquals(2, spinner.getSelectedItemPosition());
+        assertEquals(1, listener.selectedCount);
+    }
+
+    @Test
+    public void removingTheSelectedItemKeepsItsValueQuietly() {
+        spinner.setSelection(2);
+        settle(spinner);
+        spinner.removeAdapterItemAt(2);
+        settle(spinner);
+        assertEquals(17 * 60, spinner.getSelectedMinuteOfDay());
+        assertEquals(getTemporaryPosition(), spinner.getSelectedItemPosition());
+        assertEquals(1, listener.selectedCount);
+    }
+
+    @Test
+    public void removingTheSelectedItemInAnUpdateKeepsItsValueQuietly() {
+        spinner.setSelection(2);
+        settle(spinner);
+        spinner.beginUpdate();
+        spinner.removeAdapterItemById(R.id.time_evening);
+        spinner.endUpdate();
+        settle(spinner);
+        assertEquals(17 * 60, spinner.getSelectedMinuteOfDay());
+        assertEquals(getTemporaryPosition(), spinner.getSelectedItemPosition());
+        assertEquals(1, listener.selectedCount);
+    }
+
+    @Test
+    public void removingTheSelectedDateKeepsItsValueQuietly() {
+        final DateSpinner dateSpinner = new DateSpinner(container.getContext());
+        container.addView(dateSpinner);
+        settle(dateSpinner);
+        final CountingListener dateListener = new CountingListener();
+        dateSpinner.setOnItemSelectedListener(dateListener);
+        dateSpinner.setSelection(1);
+        settle(dateSpinner);
+        final int tomorrow = dateSpinner.getSelectedEpochDay();
+
+        dateSpinner.removeAdapterItemAt(1);
+        settle(dateSpinner);
+        assertEquals(tomorrow, dateSpinner.getSelectedEpochDay());
+        assertEquals(dateSpinner.getAdapter().getCount(), dateSpinner.getSelectedItemPosition());
+        assertEquals(1, dateListener.selectedCount);
+    }
+
+    /**
+     * The framework allocates for every selection, data set change and layout, so this compares the
+     * selection changes of our spinner with the same framework calls on a plain Spinner showing a copy
+     * of our items. Only the one posted listener callback per round may allocate in addition.
+     */
+    @Test
+    public void selectionChangesDoNotAllocate() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        final long threadId = Thread.currentThread().getId();
+
+        final PickerSpinnerAdapter plainAdapter = new PickerSpinnerAdapter(container.getContext(),
+                spinner.getAdapterItems(), new TwinTextItem.Simple(spinner.getFooter(), null));
+        final Spinner plain = new Spinner(container.getContext());
+        plain.setAdapter(plainAdapter);
+        plain.setOnItemSelectedListener(new CountingListener());
+        container.addView(plain);
+        settle(plain);
+        final TwinTextItem[] temporaryItems = {
+                new TimeItem("10:30", 10, 30, View.NO_ID), new TimeItem("11:45", 11, 45, View.NO_ID)};
+        final TimeItem early = new TimeItem("Early", 7, 0, View.NO_ID);
+
+        // the rounds alternate, so both spinners are measured under the same conditions
+        final int warmUpRounds = 100;
+        final int rounds = 200;
+        long ownChanges = 0, ownSettle = 0, plainChanges = 0, plainSettle = 0;
+        for(int round = -warmUpRounds; round < rounds; round++) {
+            final TwinTextItem temporaryItem = temporaryItems[(round + warmUpRounds) % 2];
+            final long start = threads.getThreadAllocatedBytes(threadId);
+            spinner.setSelection(1);
+            spinner.setSelection(2);
+            spinner.selectTemporary(temporaryItem);
+            spinner.insertAdapterItem(early, 0);
+            spinner.removeAdapterItemAt(0);
+            final long ownChanged = threads.getThreadAllocatedBytes(threadId);
+            settle(spinner);
+            final long ownSettled = threads.getThreadAllocatedBytes(threadId);
+
+            plain.setSelection(1);
+            plain.setSelection(2);
+            plainAdapter.selectTemporary(temporaryItem);
+            plain.setSelection(plainAdapter.getCount());
+            plainAdapter.insert(early, 0);
+            plain.setSelection(plainAdapter.getCount());
+            plainAdapter.removeAt(0);
+            plain.setSelection(plainAdapter.getCount());
+            final long plainChanged = threads.getThreadAllocatedBytes(threadId);
+            settle(plain);
+            final long plainSettled = threads.getThreadAllocatedBytes(threadId);
+
+            if(round >= 0) {
+                ownChanges += ownChanged - start;
+                ownSettle += ownSettled - ownChanged;
+                plainChanges += plainChanged - ownSettled;
+                plainSettle += plainSettled - plainChanged;
+            }
+        }
+
+        // every round selects another temporary item
+        assertEquals(warmUpRounds + rounds, listener.selectedCount);
+        final String message = "own " + ownChanges + " + " + ownSettle
+                + " bytes, plain " + plainChanges + " + " + plainSettle + " bytes";
+        // posting the listener callback takes a few bytes
+        assertTrue(message, ownChanges <= plainChanges + 64 * rounds);
+        // the layout is the same for both, apart from a little noise
+        assertTrue(message, ownSettle <= plainSettle + plainSettle / 100);
+    }
+
+    @Test
+    public void rotationRestoresAndReportsTheSelection() {
+        spinner.setSelection(1);
+        settle(spinner);
+        final Parcelable state = spinner.onSaveInstanceState();
+
+        final TimeSpinner restored = new TimeSpinner(container.getContext());
+        final CountingListener restoredListener = new CountingListener();
+        restored.setOnItemSelectedListener(restoredListener);
+        restored.onRestoreInstanceState(state);
+        container.addView(restored);
+        settle(restored);
+
+        assertEquals(1, restored.getSelectedItemPosition());
+        assertEquals(1, restoredListener.selectedCount);
+        assertEquals(1, restoredListener.lastPosition);
+    }
+
+    @Test
+    public void rotationRestoresAndReportsTheTemporarySelection() {
+        spinner.setSelectedTime(10, 30);
+        settle(spinner);
+        final Parcelable state = spinner.onSaveInstanceState();
+
+        final TimeSpinner restored = new TimeSpinner(container.getContext());
+        final CountingListener restoredListener = new CountingListener();
+        restored.setOnItemSelectedListener(restoredListener);
+        restored.onRestoreInstanceState(state);
+        container.addView(restored);
+        settle(restored);
+
+        assertEquals(10 * 60 + 30, restored.getSelectedMinuteOfDay());
+        assertEquals(restored.getAdapter().getCount(), restored.getSelectedItemPosition());
+        assertEquals(1, restoredListener.selectedCount);
+    }
+}
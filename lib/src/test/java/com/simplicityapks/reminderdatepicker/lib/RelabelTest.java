@@ -0,0 +1,90 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.createContainer;
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.settle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that changing the format only replaces the item texts which show a formatted value, and
+ * keeps the custom texts of the items.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class RelabelTest {
+
+    private FrameLayout container;
+
+    @Before
+    public void setUp() {
+        container = createContainer();
+    }
+
+    private <T extends PickerSpinner> T attach(T spinner) {
+        container.addView(spinner);
+        settle(spinner);
+        return spinner;
+    }
+
+    @Test
+    public void customSecondaryTimeTextIsKept() {
+        final TimeSpinner spinner = attach(new TimeSpinner(container.getContext()));
+        spinner.addAdapterItem(new TimeItem("Lunch", "Cafeteria", 12, 30, R.id.time_noon));
+
+        spinner.setTimeFormat(new SimpleDateFormat("HH.mm", Locale.US));
+        final TwinTextItem lunch = spinner.getAdapterItemById(R.id.time_noon);
+        assertEquals("Lunch", lunch.getPrimaryText().toString());
+        assertEquals("Cafeteria", lunch.getSecondaryText().toString());
+        // the default items still show the time in the new format
+        assertEquals("17.00", spinner.getAdapterItemById(R.id.time_evening).getSecondaryText().toString());
+    }
+
+    @Test
+    public void formattedTimeTextsAreReplacedAgain() {
+        final TimeSpinner spinner = attach(new TimeSpinner(container.getContext()));
+
+        spinner.setTimeFormat(new SimpleDateFormat("HH.mm", Locale.US));
+        spinner.setTimeFormat(new SimpleDateFormat("HH:mm 'h'", Locale.US));
+        assertEquals("17:00 h", spinner.getAdapterItemById(R.id.time_evening).getSecondaryText().toString());
+    }
+
+    @Test
+    public void onlyFormattedDateTextsAreReplaced() {
+        final DateSpinner spinner = attach(new DateSpinner(container.getContext()));
+        spinner.setFlags(ReminderDatePicker.FLAG_MONTH);
+        final Calendar deadline = Calendar.getInstance();
+        deadline.add(Calendar.DAY_OF_YEAR, 3);
+        spinner.addAdapterItem(new DateItem("Deadline", deadline, R.id.date_last_week));
+        final Calendar far = Calendar.getInstance();
+        far.add(Calendar.DAY_OF_YEAR, 100);
+        spinner.setSelectedDate(far);
+        settle(spinner);
+
+        spinner.setDateFormat(new SimpleDateFormat("yyyy-MM-dd", Locale.US));
+        assertEquals("Deadline", spinner.getAdapterItemById(R.id.date_last_week).getPrimaryText().toString());
+        assertEquals(spinner.getResources().getString(R.string.date_tomorrow),
+                spinner.getAdapterItemById(R.id.date_tomorrow).getPrimaryText().toString());
+        assertTrue(spinner.getAdapterItemById(R.id.date_month).getPrimaryText().toString()
+                .matches("\\d{4}-\\d{2}-\\d{2}"));
+        final TwinTextItem selected = (TwinTextItem) spinner.getSelectedItem();
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(far.getTime()),
+                selected.getPrimaryText().toString());
+
+        // the replaced texts are still known to be formatted
+        spinner.setDateFormat(new SimpleDateFormat("dd.MM.yyyy", Locale.US));
+        assertEquals(new SimpleDateFormat("dd.MM.yyyy", Locale.US).format(far.getTime()),
+                ((TwinTextItem) spinner.getSelectedItem()).getPrimaryText().toString());
+    }
+}
@@ -0,0 +1,122 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Calendar;
+
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.createContainer;
+import static com.simplicityapks.reminderdatepicker.lib.SpinnerTestHelper.settle;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the parcel size of the PickerSpinner state: a selected item costs a single int on top of
+ * the Spinner's own state, a temporary selection one more.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class SavedStateTest {
+
+    private static final int INT_SIZE = 4;
+
+    private FrameLayout container;
+
+    @Before
+    public void setUp() {
+        container = createContainer();
+    }
+
+    private <T extends PickerSpinner> T attach(T spinner) {
+        container.addView(spinner);
+        settle(spinner);
+        return spinner;
+    }
+
+    private static int sizeOf(Parcelable state) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        }
+        finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Gets how much our state adds to the Spinner's one.
+     */
+    private static int getOwnSize(PickerSpinner.SavedState state) {
+        // BaseSavedState writes some fields of its own since API 24
+        return sizeOf(state) - sizeOf(new View.BaseSavedState(state.getSuperState()));
+    }
+
+    private static PickerSpinner.SavedState saveAndCheck(PickerSpinner spinner, int ownSize) {
+        final PickerSpinner.SavedState state = (PickerSpinner.SavedState) spinner.onSaveInstanceState();
+        assertEquals(ownSize, getOwnSize(state));
+
+        // the state needs to read back the same way
+        final Parcel parcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel, 0);
+            assertEquals(sizeOf(state), parcel.dataSize());
+            parcel.setDataPosition(0);
+            final PickerSpinner.SavedState read = PickerSpinner.SavedState.CREATOR.createFromParcel(parcel);
+            assertEquals(state.flags, read.flags);
+            assertEquals(state.temporaryValue, read.temporaryValue);
+            assertEquals(parcel.dataSize(), parcel.dataPosition());
+        }
+        finally {
+            parcel.recycle();
+        }
+        return state;
+    }
+
+    @Test
+    public void dateItem() {
+        final DateSpinner spinner = attach(new DateSpinner(container.getContext()));
+        spinner.setSelection(1);
+        settle(spinner);
+        final PickerSpinner.SavedState state = saveAndCheck(spinner, INT_SIZE);
+        assertEquals(0, state.flags);
+    }
+
+    @Test
+    public void timeItem() {
+        final TimeSpinner spinner = attach(new TimeSpinner(container.getContext()));
+        spinner.setSelection(2);
+        settle(spinner);
+        final PickerSpinner.SavedState state = saveAndCheck(spinner, INT_SIZE);
+        assertEquals(0, state.flags);
+    }
+
+    @Test
+    public void temporaryDate() {
+        final DateSpinner spinner = attach(new DateSpinner(container.getContext()));
+        final Calendar date = Calendar.getInstance();
+        date.add(Calendar.DAY_OF_MONTH, 30);
+        spinner.setSelectedDate(date);
+        settle(spinner);
+        final PickerSpinner.SavedState state = saveAndCheck(spinner, 2 * INT_SIZE);
+        assertEquals(PickerSpinner.SavedState.FLAG_TEMPORARY_VALUE, state.flags);
+        assertEquals(EpochDay.of(date), state.temporaryValue);
+    }
+
+    @Test
+    public void temporaryTime() {
+        final TimeSpinner spinner = attach(new TimeSpinner(container.getContext()));
+        spinner.setSelectedTime(10, 30);
+        settle(spinner);
+        final PickerSpinner.SavedState state = saveAndCheck(spinner, 2 * INT_SIZE);
+        assertEquals(PickerSpinner.SavedState.FLAG_TEMPORARY_VALUE, state.flags);
+        assertEquals(10 * 60 + 30, state.temporaryValue);
+    }
+}
@@ -0,0 +1,69 @@
+package com.simplicityapks.reminderdatepicker.lib;
+
+import android.app.Activity;
+import android.support.v4.app.FragmentActivity;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.FrameLayout;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Shared setup for the Robolectric tests of our spinners.
+ */
+final class SpinnerTestHelper {
+
+    private SpinnerTestHelper() {
+        // no instances
+    }
+
+    /**
+     * Creates a visible activity with an empty container for the spinners under test. The main
+     * looper is paused afterwards, so posted callbacks only run in {@link #settle(View)}.
+     */
+    static FrameLayout createContainer() {
+        final Activity activity = Robolectric.setupActivity(FragmentActivity.class);
+        final FrameLayout container = new FrameLayout(activity);
+        activity.setContentView(container);
+        ShadowLooper.pauseMainLooper();
+        return container;
+    }
+
+    /**
+     * Measures and lays out the given view right away, like the next traversal would.
+     */
+    static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(200, View.MeasureSpec.AT_MOST));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    /**
+     * Lays out the view and runs everything posted to the main looper, like the listener callbacks.
+     */
+    static void settle(View view) {
+        layout(view);
+        ShadowLooper.idleMainLooper();
+    }
+
+    /**
+     * Counts the calls of an OnItemSelectedListener.
+     */
+    static final class CountingListener implements AdapterView.OnItemSelectedListener {
+        int selectedCount = 0;
+        int nothingSelectedCount = 0;
+        int lastPosition = AdapterView.INVALID_POSITION;
+
+        @Override
+        public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+            selectedCount++;
+            lastPosition = position;
+        }
+
+        @Override
+        public void onNothingSelected(AdapterView<?> parent) {
+            nothingSelectedCount++;
+        }
+    }
+}